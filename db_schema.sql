@@ -16,10 +16,17 @@ CREATE TABLE `class` (
   `name` VARCHAR(100) NOT NULL COMMENT '班级名称',
   `code` VARCHAR(20) NOT NULL COMMENT '班级邀请码/编码',
   `teacher_id` BIGINT NOT NULL COMMENT '班主任ID',
+  `student_count` INT NOT NULL DEFAULT 0 COMMENT '学生人数，随加入/移出学生增减，定期与 class_student 核对',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-  FOREIGN KEY (`teacher_id`) REFERENCES `user`(`id`)
+  FOREIGN KEY (`teacher_id`) REFERENCES `user`(`id`),
+  UNIQUE KEY `uk_class_code` (`code`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='班级表';
 
+-- 已有数据库升级：
+-- ALTER TABLE `class` ADD COLUMN `student_count` INT NOT NULL DEFAULT 0 AFTER `teacher_id`;
+-- ALTER TABLE `class` ADD UNIQUE KEY `uk_class_code` (`code`);  -- 先用 SELECT code FROM class GROUP BY code HAVING COUNT(*) > 1 确认没有重复
+-- UPDATE `class` c SET c.`student_count` = (SELECT COUNT(*) FROM `class_student` cs WHERE cs.`class_id` = c.`id`);
+
 -- 班级-学生关联表
 CREATE TABLE `class_student` (
   `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键',
@@ -40,8 +47,11 @@ CREATE TABLE `assignment` (
   `teacher_id` BIGINT NOT NULL COMMENT '发布老师ID',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '发布时间',
   `due_date` DATETIME COMMENT '截止时间',
+  `file_url` VARCHAR(255) DEFAULT NULL COMMENT '附件地址',
   FOREIGN KEY (`class_id`) REFERENCES `class`(`id`),
-  FOREIGN KEY (`teacher_id`) REFERENCES `user`(`id`)
+  FOREIGN KEY (`teacher_id`) REFERENCES `user`(`id`),
+  INDEX `idx_class_created` (`class_id`, `created_at`, `id`),
+  INDEX `idx_file_url` (`file_url`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='作业表';
 
 -- 作业提交表
@@ -55,5 +65,72 @@ CREATE TABLE `assignment_submission` (
   `feedback_time` DATETIME COMMENT '反馈时间',
   FOREIGN KEY (`assignment_id`) REFERENCES `assignment`(`id`),
   FOREIGN KEY (`student_id`) REFERENCES `user`(`id`),
-  INDEX `idx_assignment_student` (`assignment_id`, `student_id`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='作业提交表'; 
\ No newline at end of file
+  UNIQUE KEY `uk_assignment_student` (`assignment_id`, `student_id`),
+  INDEX `idx_file_url` (`file_url`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='作业提交表';
+
+-- 已有数据库升级：先删除重复提交，只保留每个学生最新的一条，再改为唯一索引
+-- DELETE s FROM `assignment_submission` s
+--   JOIN `assignment_submission` newer ON newer.assignment_id = s.assignment_id
+--    AND newer.student_id = s.student_id AND newer.id > s.id;
+-- ALTER TABLE `assignment_submission` DROP INDEX `idx_assignment_student`,
+--   ADD UNIQUE KEY `uk_assignment_student` (`assignment_id`, `student_id`);
+
+-- 作业提交历史表（被覆盖的旧版本，每个学生每个作业最多保留 assignment.submission.history-limit 条）
+CREATE TABLE `assignment_submission_history` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键',
+  `assignment_id` BIGINT NOT NULL COMMENT '作业ID',
+  `student_id` BIGINT NOT NULL COMMENT '学生ID',
+  `file_url` VARCHAR(255) NOT NULL COMMENT '旧版本文件地址',
+  `submitted_at` DATETIME DEFAULT NULL COMMENT '旧版本提交时间',
+  `replaced_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '被覆盖时间',
+  INDEX `idx_assignment_student` (`assignment_id`, `student_id`, `id`),
+  INDEX `idx_file_url` (`file_url`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='作业提交历史表';
+
+-- 已有数据库升级：存储迁移按 file_url 条件改写，需要以下索引（InnoDB 在线添加）
+-- ALTER TABLE `assignment` ADD INDEX `idx_file_url` (`file_url`);
+-- ALTER TABLE `assignment_submission` ADD INDEX `idx_file_url` (`file_url`);
+
+-- token吊销表
+CREATE TABLE `token_revocation` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键',
+  `token_hash` CHAR(64) NOT NULL COMMENT '被吊销token的SHA-256',
+  `revoked_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '吊销时间',
+  `expires_at` DATETIME NOT NULL COMMENT '失效时间，之后可清理',
+  `reason` VARCHAR(50) DEFAULT NULL COMMENT '吊销原因',
+  INDEX `idx_revoked_at` (`revoked_at`),
+  INDEX `idx_expires_at` (`expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='token吊销表';
+
+-- 分片上传会话表
+CREATE TABLE `file_upload` (
+  `id` CHAR(32) PRIMARY KEY COMMENT '上传ID',
+  `user_id` BIGINT NOT NULL COMMENT '上传用户ID',
+  `file_name` VARCHAR(255) NOT NULL COMMENT '原始文件名',
+  `total_size` BIGINT NOT NULL COMMENT '文件总大小（字节）',
+  `received_size` BIGINT NOT NULL DEFAULT 0 COMMENT '已连续接收的字节数',
+  `status` VARCHAR(20) NOT NULL COMMENT '状态：UPLOADING、COMPLETING、COMPLETED',
+  `file_url` VARCHAR(255) DEFAULT NULL COMMENT '完成后的文件地址',
+  `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近一次写入时间',
+  FOREIGN KEY (`user_id`) REFERENCES `user`(`id`),
+  INDEX `idx_updated_at` (`updated_at`),
+  INDEX `idx_file_url` (`file_url`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传会话表';
+
+-- 文件内容表（按SHA-256去重存储，引用计数归零后删除）
+CREATE TABLE `file_blob` (
+  `sha256` CHAR(64) PRIMARY KEY COMMENT '文件内容的SHA-256',
+  `size` BIGINT NOT NULL COMMENT '文件大小（字节）',
+  `ref_count` INT NOT NULL DEFAULT 0 COMMENT '引用该内容的记录数',
+  `compression` VARCHAR(16) DEFAULT NULL COMMENT '冷存储压缩方式：gzip-已压缩，none-压缩收益不足保持原样，NULL-未处理',
+  `stored_size` BIGINT DEFAULT NULL COMMENT '压缩后的大小（字节）',
+  `last_accessed_at` DATETIME DEFAULT NULL COMMENT '最近读取时间',
+  `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件内容表';
+
+-- 已有数据库升级：
+-- ALTER TABLE `file_blob` ADD COLUMN `compression` VARCHAR(16) DEFAULT NULL AFTER `ref_count`,
+--   ADD COLUMN `stored_size` BIGINT DEFAULT NULL AFTER `compression`,
+--   ADD COLUMN `last_accessed_at` DATETIME DEFAULT NULL AFTER `stored_size`;
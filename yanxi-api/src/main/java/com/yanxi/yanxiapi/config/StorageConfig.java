@@ -0,0 +1,64 @@
+package com.yanxi.yanxiapi.config;
+
+import com.yanxi.yanxiapi.storage.LocalStorageBackend;
+import com.yanxi.yanxiapi.storage.S3StorageBackend;
+import com.yanxi.yanxiapi.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * 文件内容的存储后端，由 storage.type 选择：local（默认）存本地磁盘，s3 存 S3 协议的对象存储
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
+    public StorageBackend localStorageBackend(@Value("${file.upload-dir:./uploads}") String uploadDir) {
+        return new LocalStorageBackend(Paths.get(uploadDir).resolve("blobs"));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+    public S3Client s3Client(@Value("${storage.s3.endpoint:}") String endpoint,
+                             @Value("${storage.s3.region:us-east-1}") String region,
+                             @Value("${storage.s3.access-key:}") String accessKey,
+                             @Value("${storage.s3.secret-key:}") String secretKey,
+                             @Value("${storage.s3.path-style:false}") boolean pathStyle) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build());
+        // 未配置密钥时按环境变量、实例角色等默认方式获取凭证
+        builder.credentialsProvider(StringUtils.hasText(accessKey)
+                ? StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
+                : DefaultCredentialsProvider.create());
+        if (StringUtils.hasText(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+    public StorageBackend s3StorageBackend(S3Client s3Client,
+                                           @Value("${storage.s3.bucket}") String bucket,
+                                           @Value("${storage.s3.prefix:}") String prefix,
+                                           @Value("${storage.s3.multipart-threshold:16MB}") DataSize multipartThreshold,
+                                           @Value("${storage.s3.part-size:8MB}") DataSize partSize) {
+        return new S3StorageBackend(s3Client, bucket, prefix, multipartThreshold.toBytes(), partSize.toBytes());
+    }
+}
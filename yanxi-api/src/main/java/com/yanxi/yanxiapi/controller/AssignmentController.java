@@ -1,18 +1,30 @@
 package com.yanxi.yanxiapi.controller;
 
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.yanxi.yanxiapi.dto.CursorPage;
+import com.yanxi.yanxiapi.dto.PageCursor;
+import com.yanxi.yanxiapi.dto.StoredFile;
 import com.yanxi.yanxiapi.entity.Assignment;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 import com.yanxi.yanxiapi.service.AssignmentService;
 import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.utils.DownloadUtils;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -21,16 +33,37 @@ import java.util.List;
 @RequestMapping("/api/assignments")
 @RequiredArgsConstructor
 public class AssignmentController {
+    private static final long MAX_PAGE_SIZE = 200;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final AssignmentService assignmentService;
     private final FileService fileService;
 
+    /**
+     * 获取教师的作业列表，按创建时间倒序分页，下一页游标放在 X-Next-Cursor 响应头
+     * @param classId 班级ID（可选）
+     * @param studentEmail 学生邮箱（可选）
+     * @param cursor 上一页返回的游标（可选）
+     * @param limit 每页数量，最大 PageCursor.MAX_LIMIT
+     * @param teacher 当前登录的教师
+     * @return 作业列表
+     */
     @GetMapping
     public ResponseEntity<List<Assignment>> getAssignments(
             @RequestParam(name = "classId", required = false) Long classId,
             @RequestParam(name = "studentEmail", required = false) String studentEmail,
-            @AuthenticationPrincipal User teacher) {
-        List<Assignment> assignments = assignmentService.getAssignments(classId, studentEmail, teacher);
-        return ResponseEntity.ok(assignments);
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal teacher) {
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPage<Assignment> assignments = assignmentService.getAssignments(classId, studentEmail, teacher,
+                pageCursor, PageCursor.clampLimit(limit));
+        return cursorResponse(assignments);
     }
 
     /**
@@ -38,7 +71,8 @@ public class AssignmentController {
      * @param classId
      * @param title
      * @param description
-     * @param file
+     * @param file 附件，与 uploadId 二选一
+     * @param uploadId 已完成的分片上传ID，大文件使用 /api/uploads 上传
      * @param dueDate
      * @param teacher
      * @return
@@ -48,70 +82,145 @@ public class AssignmentController {
             @RequestParam("classId") Long classId,
             @RequestParam("title") String title,
             @RequestParam("description") String description,
-            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "uploadId", required = false) String uploadId,
             @RequestParam("dueDate") String dueDate,
-            @AuthenticationPrincipal User teacher) {
+            @AuthenticationPrincipal UserPrincipal teacher) {
         
         LocalDateTime dueDateTime = LocalDateTime.parse(dueDate, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        Assignment assignment = assignmentService.createAssignment(classId, title, description, file, dueDateTime, teacher);
+        Assignment assignment;
+        if (uploadId != null) {
+            assignment = assignmentService.createAssignmentFromUpload(classId, title, description, uploadId, dueDateTime, teacher);
+        } else if (file != null) {
+            assignment = assignmentService.createAssignment(classId, title, description, file, dueDateTime, teacher);
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok(assignment);
     }
 
+    /**
+     * 下载文件，支持断点续传（Range/If-Range）和缓存校验（ETag/If-None-Match）
+     * @param fileUrl 文件地址
+     */
     @GetMapping("/download")
-    public ResponseEntity<Resource> downloadFile(@RequestParam String fileUrl) {
+    public void downloadFile(@RequestParam String fileUrl,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        StoredFile file;
         try {
-            Resource resource = fileService.loadFileAsResource(fileUrl);
-            
-            String contentType = "application/octet-stream";
-            String headerValue = "attachment; filename=\"" + resource.getFilename() + "\"";
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, headerValue)
-                    .body(resource);
+            file = fileService.getStoredFile(fileUrl);
         } catch (IOException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        DownloadUtils.serve(file, request, response);
+    }
+
+    /**
+     * 打包下载作业的全部提交，ZIP边生成边输出
+     * @param assignmentId 作业ID
+     * @param teacher 当前登录的教师
+     * @return ZIP文件
+     */
+    @GetMapping("/{assignmentId}/submissions.zip")
+    public ResponseEntity<StreamingResponseBody> downloadSubmissions(
+            @PathVariable Long assignmentId,
+            @AuthenticationPrincipal UserPrincipal teacher) {
+        Assignment assignment = assignmentService.getById(assignmentId);
+        if (assignment == null) {
             return ResponseEntity.notFound().build();
         }
+        if (!assignment.getTeacherId().equals(teacher.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        String filename = assignment.getTitle() + "_" + assignmentId + ".zip";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(filename, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .body(out -> assignmentService.exportSubmissions(assignment, out));
     }
 
     /**
-     * 获取作业的学生列表
+     * 分页获取作业的学生列表，总数放在 X-Total-Count 响应头
      * @param assignmentId 作业ID
+     * @param page 页码，从1开始
+     * @param size 每页数量，最大 MAX_PAGE_SIZE
+     * @param sort 排序：name-按姓名，submittedAt-按提交时间
      * @return 学生列表
      */
     @GetMapping("/{assignmentId}/students")
-    public ResponseEntity<List<User>> getAssignmentStudents(@PathVariable Long assignmentId) {
-        List<User> students = assignmentService.getAssignmentStudents(assignmentId);
-        return ResponseEntity.ok(students);
+    public ResponseEntity<List<User>> getAssignmentStudents(
+            @PathVariable Long assignmentId,
+            @RequestParam(value = "page", defaultValue = "1") long page,
+            @RequestParam(value = "size", defaultValue = "50") long size,
+            @RequestParam(value = "sort", defaultValue = "name") String sort) {
+        IPage<User> students = assignmentService.getAssignmentStudents(
+                assignmentId, Math.max(page, 1), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(students.getTotal()))
+                .body(students.getRecords());
     }
 
     /**
-     * 获取当前学生的作业列表
+     * 获取当前学生的作业列表，按创建时间倒序分页，下一页游标放在 X-Next-Cursor 响应头
      * @param submitted 是否已提交（可选）
+     * @param cursor 上一页返回的游标（可选）
+     * @param limit 每页数量，最大 PageCursor.MAX_LIMIT
      * @param student 当前登录的学生
      * @return 作业列表
      */
     @GetMapping("/student")
     public ResponseEntity<List<Assignment>> getStudentAssignments(
             @RequestParam(value = "submitted", required = false) Boolean submitted,
-            @AuthenticationPrincipal User student) {
-        List<Assignment> assignments = assignmentService.getStudentAssignments(submitted, student);
-        return ResponseEntity.ok(assignments);
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal student) {
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPage<Assignment> assignments = assignmentService.getStudentAssignments(submitted, student,
+                pageCursor, PageCursor.clampLimit(limit));
+        return cursorResponse(assignments);
     }
 
     /**
      * 学生提交作业
      * @param assignmentId 作业ID
-     * @param file 作业文件
+     * @param file 作业文件，与 uploadId 二选一
+     * @param uploadId 已完成的分片上传ID
      * @param student 当前登录的学生
      * @return 更新后的作业信息
      */
     @PostMapping("/{assignmentId}/submit")
     public ResponseEntity<Assignment> submitAssignment(
             @PathVariable Long assignmentId,
-            @RequestParam("file") MultipartFile file,
-            @AuthenticationPrincipal User student) {
-        Assignment assignment = assignmentService.submitAssignment(assignmentId, file, student);
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "uploadId", required = false) String uploadId,
+            @AuthenticationPrincipal UserPrincipal student) {
+        Assignment assignment;
+        if (uploadId != null) {
+            assignment = assignmentService.submitUploadedAssignment(assignmentId, uploadId, student);
+        } else if (file != null) {
+            assignment = assignmentService.submitAssignment(assignmentId, file, student);
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok(assignment);
     }
-} 
\ No newline at end of file
+
+    private static <T> ResponseEntity<List<T>> cursorResponse(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            builder.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(page.getItems());
+    }
+}
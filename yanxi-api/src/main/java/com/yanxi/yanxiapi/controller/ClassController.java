@@ -1,23 +1,30 @@
 package com.yanxi.yanxiapi.controller;
 
+import com.yanxi.yanxiapi.dto.BulkImportResult;
 import com.yanxi.yanxiapi.dto.ClassDTO;
 import com.yanxi.yanxiapi.dto.CreateClassRequest;
+import com.yanxi.yanxiapi.dto.CursorPage;
 import com.yanxi.yanxiapi.dto.JoinClassRequest;
+import com.yanxi.yanxiapi.dto.PageCursor;
 import com.yanxi.yanxiapi.entity.ClassEntity;
-import com.yanxi.yanxiapi.entity.ClassStudent;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 import com.yanxi.yanxiapi.service.ClassService;
 import com.yanxi.yanxiapi.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/classes")
@@ -25,41 +32,54 @@ import java.util.stream.Collectors;
 public class ClassController {
     private final ClassService classService;
     private final UserService userService;
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final ClassDTOAssembler classDTOAssembler;
+
+    private static final Set<String> CSV_HEADERS = new HashSet<>(Arrays.asList("username", "email", "identifier"));
 
     @GetMapping("/teacher")
-    public ResponseEntity<List<ClassDTO>> getTeacherClasses(@AuthenticationPrincipal User teacher) {
-        List<ClassEntity> classes = classService.getClassesByTeacher(teacher);
-        List<ClassDTO> classDTOs = classes.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(classDTOs);
+    public ResponseEntity<List<ClassDTO>> getTeacherClasses(
+            @AuthenticationPrincipal UserPrincipal teacher,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPage<ClassEntity> classes = classService.getClassesByTeacher(teacher, pageCursor,
+                PageCursor.clampLimit(limit));
+        return cursorResponse(classes.mapAll(classDTOAssembler::toDTOs));
     }
 
     @GetMapping("/student")
-    public ResponseEntity<List<ClassDTO>> getStudentClasses(@AuthenticationPrincipal User student) {
-        List<ClassStudent> classStudents = classService.getClassesByStudent(student);
-        List<ClassDTO> classDTOs = classStudents.stream()
-                .map(cs -> classService.getClassById(cs.getClassId())
-                        .map(this::convertToDTO)
-                        .orElse(null))
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(classDTOs);
+    public ResponseEntity<List<ClassDTO>> getStudentClasses(
+            @AuthenticationPrincipal UserPrincipal student,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPage<ClassEntity> classes = classService.getClassesByStudent(student, pageCursor,
+                PageCursor.clampLimit(limit));
+        return cursorResponse(classes.mapAll(classDTOAssembler::toDTOs));
     }
 
     @PostMapping
     public ResponseEntity<ClassDTO> createClass(
             @RequestBody CreateClassRequest request,
-            @AuthenticationPrincipal User teacher) {
+            @AuthenticationPrincipal UserPrincipal teacher) {
         ClassEntity classEntity = classService.createClass(request.getName(), teacher);
-        return ResponseEntity.ok(convertToDTO(classEntity));
+        return ResponseEntity.ok(classDTOAssembler.toDTO(classEntity));
     }
 
     @DeleteMapping("/{classId}")
     public ResponseEntity<Void> deleteClass(
             @PathVariable Long classId,
-            @AuthenticationPrincipal User teacher) {
+            @AuthenticationPrincipal UserPrincipal teacher) {
         ClassEntity classEntity = classService.getClassById(classId)
                 .orElseThrow(() -> new IllegalArgumentException("Class not found"));
 
@@ -74,22 +94,84 @@ public class ClassController {
     @PostMapping("/join")
     public ResponseEntity<ClassDTO> joinClass(
             @RequestBody JoinClassRequest request,
-            @AuthenticationPrincipal User student) {
+            @AuthenticationPrincipal UserPrincipal student) {
         Optional<ClassEntity> classByCode = classService.getClassByCode(request.getCode());
         if (classByCode.isPresent()) {
             ClassEntity classEntity = classByCode.get();
-            ClassStudent classStudent = classService.addStudentToClass(classEntity, student);
-            return ResponseEntity.ok(convertToDTO(classEntity));
+            try {
+                classService.addStudentToClass(classEntity, student);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            } catch (IllegalStateException e) {
+                // 已在班级中（包括重复提交）
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            return ResponseEntity.ok(classDTOAssembler.toDTO(classEntity));
         } else {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * 批量导入名单，CSV 取每行第一列（可带表头），JSON 为用户名或邮箱数组
+     */
+    @PostMapping(value = "/{classId}/students:bulk", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<BulkImportResult> importStudentsCsv(
+            @PathVariable Long classId,
+            @RequestBody String csv,
+            @AuthenticationPrincipal UserPrincipal teacher) {
+        return importStudents(classId, parseCsvFirstColumn(csv), teacher);
+    }
+
+    @PostMapping(value = "/{classId}/students:bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportResult> importStudentsJson(
+            @PathVariable Long classId,
+            @RequestBody List<String> identifiers,
+            @AuthenticationPrincipal UserPrincipal teacher) {
+        return importStudents(classId, identifiers, teacher);
+    }
+
+    private ResponseEntity<BulkImportResult> importStudents(Long classId, List<String> identifiers,
+                                                            UserPrincipal teacher) {
+        Optional<ClassEntity> classEntity = classService.getClassById(classId);
+        if (!classEntity.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!classEntity.get().getTeacherId().equals(teacher.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(classService.importStudents(classEntity.get(), identifiers));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static List<String> parseCsvFirstColumn(String csv) {
+        List<String> values = new ArrayList<>();
+        // 去掉 Excel 导出的 BOM
+        String body = csv.startsWith("\uFEFF") ? csv.substring(1) : csv;
+        for (String line : body.split("\r?\n")) {
+            int comma = line.indexOf(',');
+            String value = (comma >= 0 ? line.substring(0, comma) : line).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1).trim();
+            }
+            if (values.isEmpty() && CSV_HEADERS.contains(value.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            if (!value.isEmpty()) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
     @DeleteMapping("/{classId}/students/{studentId}")
     public ResponseEntity<Void> removeStudent(
             @PathVariable Long classId,
             @PathVariable Long studentId,
-            @AuthenticationPrincipal User teacher) {
+            @AuthenticationPrincipal UserPrincipal teacher) {
         ClassEntity classEntity = classService.getClassById(classId)
                 .orElseThrow(() -> new IllegalArgumentException("Class not found"));
 
@@ -106,26 +188,27 @@ public class ClassController {
 
     @GetMapping("/teacher/students")
     public ResponseEntity<List<User>> getTeacherAllStudents(
-            @AuthenticationPrincipal User teacher,
+            @AuthenticationPrincipal UserPrincipal teacher,
             @RequestParam(value = "email", required = false) String email,
-            @RequestParam(value = "classId", required = false) Long classId) {
-        List<User> students = classService.getTeacherAllStudents(teacher, email, classId);
-        return ResponseEntity.ok(students);
+            @RequestParam(value = "classId", required = false) Long classId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPage<User> students = classService.getTeacherAllStudents(teacher, email, classId,
+                pageCursor, PageCursor.clampLimit(limit));
+        return cursorResponse(students);
     }
 
-    private ClassDTO convertToDTO(ClassEntity classEntity) {
-        ClassDTO dto = new ClassDTO();
-        dto.setId(classEntity.getId());
-        dto.setName(classEntity.getName());
-        dto.setCode(classEntity.getCode());
-        dto.setTeacherId(classEntity.getTeacherId());
-        // 获取教师信息
-        User teacher = userService.getUserById(classEntity.getTeacherId())
-                .orElseThrow(() -> new IllegalArgumentException("Teacher not found"));
-        dto.setTeacherName(teacher.getUsername());
-        // 获取学生数量
-        dto.setStudentCount(classService.getStudentCount(classEntity.getId()));
-//        dto.setCreatedAt(classEntity.getCreatedAt().format(DATE_FORMATTER));
-        return dto;
+    private static <T> ResponseEntity<List<T>> cursorResponse(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            builder.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(page.getItems());
     }
-} 
\ No newline at end of file
+}
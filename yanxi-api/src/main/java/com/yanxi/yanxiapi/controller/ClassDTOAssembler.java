@@ -0,0 +1,55 @@
+package com.yanxi.yanxiapi.controller;
+
+import com.yanxi.yanxiapi.dto.ClassDTO;
+import com.yanxi.yanxiapi.entity.ClassEntity;
+import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 批量组装班级DTO：教师一次 IN 查询（走用户缓存），学生数量直接取 class.student_count，
+ * 查询次数与班级数量无关
+ */
+@Component
+@RequiredArgsConstructor
+public class ClassDTOAssembler {
+
+    private final UserService userService;
+
+    public ClassDTO toDTO(ClassEntity classEntity) {
+        return toDTOs(Collections.singletonList(classEntity)).get(0);
+    }
+
+    public List<ClassDTO> toDTOs(List<ClassEntity> classes) {
+        if (classes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> teachers = userService.getUsersByIds(classes.stream()
+                .map(ClassEntity::getTeacherId)
+                .collect(Collectors.toSet()));
+
+        List<ClassDTO> dtos = new ArrayList<>(classes.size());
+        for (ClassEntity classEntity : classes) {
+            ClassDTO dto = new ClassDTO();
+            dto.setId(classEntity.getId());
+            dto.setName(classEntity.getName());
+            dto.setCode(classEntity.getCode());
+            dto.setTeacherId(classEntity.getTeacherId());
+            User teacher = teachers.get(classEntity.getTeacherId());
+            if (teacher == null) {
+                throw new IllegalArgumentException("Teacher not found");
+            }
+            dto.setTeacherName(teacher.getUsername());
+            dto.setStudentCount(classEntity.getStudentCount() != null ? classEntity.getStudentCount() : 0);
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,78 @@
+package com.yanxi.yanxiapi.controller;
+
+import com.yanxi.yanxiapi.entity.Assignment;
+import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
+import com.yanxi.yanxiapi.service.SearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 教师范围内的子串搜索，只查内存索引
+ */
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final SearchService searchService;
+
+    /**
+     * 搜索教师各班级的学生（邮箱、姓名、用户名）
+     * @param q 查询串，不区分大小写
+     * @param classId 只搜索该班级（可选）
+     */
+    @GetMapping("/students")
+    public ResponseEntity<List<User>> searchStudents(
+            @AuthenticationPrincipal UserPrincipal teacher,
+            @RequestParam String q,
+            @RequestParam(value = "classId", required = false) Long classId,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (!searchService.isReady()) {
+            return notReady();
+        }
+        return ResponseEntity.ok(searchService.searchStudents(teacher.getId(), classId, q, clampLimit(limit)));
+    }
+
+    /**
+     * 搜索教师的作业（标题、描述）
+     * @param q 查询串，不区分大小写
+     */
+    @GetMapping("/assignments")
+    public ResponseEntity<List<Assignment>> searchAssignments(
+            @AuthenticationPrincipal UserPrincipal teacher,
+            @RequestParam String q,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (!searchService.isReady()) {
+            return notReady();
+        }
+        return ResponseEntity.ok(searchService.searchAssignments(teacher.getId(), q, clampLimit(limit)));
+    }
+
+    /**
+     * 索引仍在构建时返回503，提示稍后重试
+     */
+    private static <T> ResponseEntity<T> notReady() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build();
+    }
+
+    private static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
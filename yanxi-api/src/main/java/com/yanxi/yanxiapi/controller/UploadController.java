@@ -0,0 +1,102 @@
+package com.yanxi.yanxiapi.controller;
+
+import com.yanxi.yanxiapi.dto.InitUploadRequest;
+import com.yanxi.yanxiapi.entity.FileUpload;
+import com.yanxi.yanxiapi.security.UserPrincipal;
+import com.yanxi.yanxiapi.service.UploadService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * 分片上传接口
+ * 1. POST /api/uploads 创建会话
+ * 2. PUT /api/uploads/{uploadId}?offset=N 上传分片，请求体为原始字节，X-Chunk-Checksum 为分片的SHA-256
+ * 3. GET /api/uploads/{uploadId} 断线后查询已接收的字节数，从该位置继续
+ * 4. POST /api/uploads/{uploadId}/complete 完成后将 uploadId 传给创建/提交作业接口
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+    private static final String CHECKSUM_HEADER = "X-Chunk-Checksum";
+    private static final String OFFSET_HEADER = "Upload-Offset";
+
+    private final UploadService uploadService;
+
+    @PostMapping
+    public ResponseEntity<FileUpload> initUpload(
+            @RequestBody InitUploadRequest request,
+            @AuthenticationPrincipal UserPrincipal user) {
+        if (request.getSize() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(uploadService.initUpload(user.getId(), request.getFileName(), request.getSize()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<FileUpload> getUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal UserPrincipal user) {
+        try {
+            FileUpload upload = uploadService.getUpload(uploadId, user.getId());
+            return ResponseEntity.ok()
+                    .header(OFFSET_HEADER, String.valueOf(upload.getReceivedSize()))
+                    .body(upload);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 上传分片。偏移量不连续时返回409和当前进度，校验失败返回400，客户端重传该分片即可
+     */
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<FileUpload> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            @RequestHeader(value = CHECKSUM_HEADER, required = false) String checksum,
+            HttpServletRequest request,
+            @AuthenticationPrincipal UserPrincipal user) throws IOException {
+        try {
+            FileUpload upload = uploadService.writeChunk(uploadId, user.getId(), offset, checksum,
+                    request.getInputStream());
+            return ResponseEntity.ok()
+                    .header(OFFSET_HEADER, String.valueOf(upload.getReceivedSize()))
+                    .body(upload);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return conflict(uploadId, user);
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<FileUpload> completeUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal UserPrincipal user) throws IOException {
+        try {
+            return ResponseEntity.ok(uploadService.completeUpload(uploadId, user.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return conflict(uploadId, user);
+        }
+    }
+
+    private ResponseEntity<FileUpload> conflict(String uploadId, UserPrincipal user) {
+        FileUpload upload = uploadService.getUpload(uploadId, user.getId());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(OFFSET_HEADER, String.valueOf(upload.getReceivedSize()))
+                .body(upload);
+    }
+}
@@ -3,8 +3,12 @@ package com.yanxi.yanxiapi.controller;
 import com.yanxi.yanxiapi.dto.UserLoginDTO;
 import com.yanxi.yanxiapi.dto.UserRegisterDTO;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.PasswordHashingRejectedException;
+import com.yanxi.yanxiapi.service.TokenRevocationService;
 import com.yanxi.yanxiapi.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,6 +24,7 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
 
     /**
      * 学生注册
@@ -30,6 +35,8 @@ public class UserController {
             registerDTO.setUserType("STUDENT");
             User user = userService.register(registerDTO);
             return ResponseEntity.ok(user);
+        } catch (PasswordHashingRejectedException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", e.getMessage());
@@ -46,6 +53,8 @@ public class UserController {
             registerDTO.setUserType("TEACHER");
             User user = userService.register(registerDTO);
             return ResponseEntity.ok(user);
+        } catch (PasswordHashingRejectedException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", e.getMessage());
@@ -61,10 +70,38 @@ public class UserController {
         try {
             Map<String, String> response = userService.loginWithRole(loginDTO);
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingRejectedException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(response);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 退出登录，吊销当前token
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authorizationHeader) {
+        try {
+            tokenRevocationService.revokeToken(authorizationHeader.replaceFirst("^Bearer ", ""), "LOGOUT");
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 密码哈希线程池已满，快速返回503
+     */
+    private ResponseEntity<?> serviceUnavailable(PasswordHashingRejectedException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.yanxi.yanxiapi.dto;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量导入名单的结果：按状态汇总的行数和逐行结果
+ */
+@Data
+public class BulkImportResult {
+
+    private int total;
+
+    /**
+     * 导入后班级的学生人数
+     */
+    private Integer studentCount;
+
+    private Map<String, Integer> summary;
+
+    private List<BulkImportRow> rows;
+
+    public static BulkImportResult of(List<BulkImportRow> rows, Integer studentCount) {
+        BulkImportResult result = new BulkImportResult();
+        result.setTotal(rows.size());
+        result.setStudentCount(studentCount);
+        Map<String, Integer> summary = new LinkedHashMap<>();
+        for (BulkImportRow row : rows) {
+            summary.merge(row.getStatus(), 1, Integer::sum);
+        }
+        result.setSummary(summary);
+        result.setRows(rows);
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package com.yanxi.yanxiapi.dto;
+
+import lombok.Data;
+
+/**
+ * 批量导入名单中一行的处理结果
+ */
+@Data
+public class BulkImportRow {
+
+    public static final String ADDED = "ADDED";
+    public static final String ALREADY_IN_CLASS = "ALREADY_IN_CLASS";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String NOT_A_STUDENT = "NOT_A_STUDENT";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String INVALID = "INVALID";
+
+    /**
+     * 行号，从1开始
+     */
+    private int row;
+
+    /**
+     * 提交的用户名或邮箱
+     */
+    private String identifier;
+
+    /**
+     * 处理结果
+     */
+    private String status;
+
+    /**
+     * 匹配到的学生ID
+     */
+    private Long studentId;
+
+    public BulkImportRow(int row, String identifier) {
+        this.row = row;
+        this.identifier = identifier;
+    }
+}
@@ -0,0 +1,62 @@
+package com.yanxi.yanxiapi.dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集分页结果
+ */
+@Getter
+public class CursorPage<T> {
+
+    /**
+     * 响应头：下一页游标，没有更多数据时不返回
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * 当前页数据
+     */
+    private final List<T> items;
+
+    /**
+     * 下一页游标，为空表示没有更多数据
+     */
+    private final String nextCursor;
+
+    private CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 由多查询一条的结果构造分页：多出的一条说明还有下一页
+     *
+     * @param rows     按游标顺序查询的 limit + 1 条记录
+     * @param limit    每页数量
+     * @param cursorOf 从记录生成游标
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        items.forEach(item -> mapped.add(mapper.apply(item)));
+        return new CursorPage<>(mapped, nextCursor);
+    }
+
+    /**
+     * 整页转换，便于批量加载关联数据
+     */
+    public <R> CursorPage<R> mapAll(Function<List<T>, List<R>> mapper) {
+        return new CursorPage<>(mapper.apply(items), nextCursor);
+    }
+}
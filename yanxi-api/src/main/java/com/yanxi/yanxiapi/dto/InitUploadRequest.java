@@ -0,0 +1,9 @@
+package com.yanxi.yanxiapi.dto;
+
+import lombok.Data;
+
+@Data
+public class InitUploadRequest {
+    private String fileName;
+    private Long size;
+}
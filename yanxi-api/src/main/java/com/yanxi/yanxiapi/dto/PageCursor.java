@@ -0,0 +1,81 @@
+package com.yanxi.yanxiapi.dto;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 键集分页游标：上一页最后一条记录的 (created_at, id)
+ * 对外编码为不透明字符串，客户端只需原样传回
+ */
+@Value
+public class PageCursor {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    /**
+     * 创建时间（毫秒时间戳）
+     */
+    long createdAtMillis;
+
+    /**
+     * 记录ID
+     */
+    long id;
+
+    public static PageCursor of(LocalDateTime createdAt, Long id) {
+        long millis = createdAt != null ? createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+        return new PageCursor(millis, id);
+    }
+
+    public static PageCursor of(Date createdAt, Long id) {
+        return new PageCursor(createdAt != null ? createdAt.getTime() : 0L, id);
+    }
+
+    /**
+     * 解析客户端传回的游标，为空表示第一页
+     *
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new PageCursor(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * 将请求的每页数量限制在 [1, MAX_LIMIT]
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+
+    public String encode() {
+        String raw = createdAtMillis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime toLocalDateTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(createdAtMillis), ZoneId.systemDefault());
+    }
+
+    public Date toDate() {
+        return new Date(createdAtMillis);
+    }
+}
@@ -0,0 +1,77 @@
+package com.yanxi.yanxiapi.dto;
+
+import com.yanxi.yanxiapi.storage.StorageBackend;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 已存储文件的元数据，用于下载时的条件请求与范围请求
+ */
+@Value
+public class StoredFile {
+
+    /**
+     * 文件所在的存储后端
+     */
+    @Getter(AccessLevel.NONE)
+    StorageBackend backend;
+
+    /**
+     * 存储后端中的对象键
+     */
+    String key;
+
+    /**
+     * 下载时使用的文件名
+     */
+    String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    long size;
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    long lastModifiedMillis;
+
+    /**
+     * 强校验ETag（含引号）
+     */
+    String etag;
+
+    /**
+     * 内容是否不可变：去重存储的地址由内容摘要决定，同一地址的内容永远不变
+     */
+    boolean immutable;
+
+    /**
+     * 读取全部内容
+     */
+    public InputStream open() throws IOException {
+        return backend.get(key);
+    }
+
+    /**
+     * 读取一段内容
+     * @param offset 起始位置
+     * @param length 读取长度
+     */
+    public InputStream open(long offset, long length) throws IOException {
+        return backend.get(key, offset, length);
+    }
+
+    /**
+     * 文件在本机磁盘上的位置，远程存储时为空
+     */
+    public Optional<Path> localPath() {
+        return backend.localPath(key);
+    }
+}
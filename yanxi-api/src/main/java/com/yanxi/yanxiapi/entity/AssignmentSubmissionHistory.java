@@ -0,0 +1,45 @@
+package com.yanxi.yanxiapi.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 作业提交历史实体类（重新提交时被覆盖的旧版本）
+ */
+@Data
+@TableName("assignment_submission_history")
+public class AssignmentSubmissionHistory {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 作业ID
+     */
+    @TableField("assignment_id")
+    private Long assignmentId;
+
+    /**
+     * 学生ID
+     */
+    @TableField("student_id")
+    private Long studentId;
+
+    /**
+     * 旧版本文件地址
+     */
+    @TableField("file_url")
+    private String fileUrl;
+
+    /**
+     * 旧版本提交时间
+     */
+    @TableField("submitted_at")
+    private LocalDateTime submittedAt;
+
+    /**
+     * 被覆盖时间
+     */
+    @TableField("replaced_at")
+    private LocalDateTime replacedAt;
+}
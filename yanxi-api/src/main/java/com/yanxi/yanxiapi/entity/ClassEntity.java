@@ -30,6 +30,12 @@ public class ClassEntity {
     @TableField("teacher_id")
     private Long teacherId;
 
+    /**
+     * 学生人数，只通过原子增减和核对任务修改，整行更新时不写入
+     */
+    @TableField(value = "student_count", updateStrategy = FieldStrategy.NEVER)
+    private Integer studentCount;
+
     /**
      * 创建时间
      */
@@ -41,4 +47,16 @@ public class ClassEntity {
      */
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private Date updatedAt;
+
+    /**
+     * 按学生查询时：学生加入班级的记录ID
+     */
+    @TableField(exist = false)
+    private Long membershipId;
+
+    /**
+     * 按学生查询时：学生加入班级的时间
+     */
+    @TableField(exist = false)
+    private Date joinedAt;
 } 
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.yanxi.yanxiapi.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 文件内容实体类，相同内容只存储一份
+ */
+@Data
+@TableName("file_blob")
+public class FileBlob {
+    /**
+     * 文件内容的SHA-256（十六进制）
+     */
+    @TableId(value = "sha256", type = IdType.INPUT)
+    private String sha256;
+
+    /**
+     * 文件大小（字节）
+     */
+    @TableField("size")
+    private Long size;
+
+    /**
+     * 引用该内容的记录数（作业、提交、历史版本、未使用的上传）
+     */
+    @TableField("ref_count")
+    private Integer refCount;
+
+    /**
+     * 冷存储压缩方式：gzip-已压缩，none-压缩收益不足保持原样，null-未处理
+     */
+    @TableField("compression")
+    private String compression;
+
+    /**
+     * 压缩后的大小（字节）
+     */
+    @TableField("stored_size")
+    private Long storedSize;
+
+    /**
+     * 最近读取时间，为空表示存入后未被读取过
+     */
+    @TableField("last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,67 @@
+package com.yanxi.yanxiapi.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 分片上传会话实体类
+ */
+@Data
+@TableName("file_upload")
+public class FileUpload {
+    public static final String STATUS_UPLOADING = "UPLOADING";
+    public static final String STATUS_COMPLETING = "COMPLETING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    @TableId(type = IdType.INPUT)
+    private String id;
+
+    /**
+     * 上传用户ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * 原始文件名
+     */
+    @TableField("file_name")
+    private String fileName;
+
+    /**
+     * 文件总大小（字节）
+     */
+    @TableField("total_size")
+    private Long totalSize;
+
+    /**
+     * 已连续接收的字节数，断点续传从这里继续
+     */
+    @TableField("received_size")
+    private Long receivedSize;
+
+    /**
+     * 状态：UPLOADING、COMPLETED
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * 完成后的文件地址
+     */
+    @TableField("file_url")
+    private String fileUrl;
+
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * 最近一次写入时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.yanxi.yanxiapi.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * token吊销记录实体类
+ */
+@Data
+@TableName("token_revocation")
+public class TokenRevocation {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 被吊销token的SHA-256
+     */
+    @TableField("token_hash")
+    private String tokenHash;
+
+    /**
+     * 吊销时间
+     */
+    @TableField("revoked_at")
+    private LocalDateTime revokedAt;
+
+    /**
+     * 失效时间，此后记录可清理
+     */
+    @TableField("expires_at")
+    private LocalDateTime expiresAt;
+
+    /**
+     * 吊销原因：LOGOUT等
+     */
+    @TableField("reason")
+    private String reason;
+}
@@ -1,6 +1,7 @@
 package com.yanxi.yanxiapi.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.Date;
@@ -10,7 +11,7 @@ import java.util.Date;
  */
 @Data
 @TableName("user")
-public class User {
+public class User implements UserPrincipal {
     
     @TableId(type = IdType.AUTO)
     private Long id;
@@ -4,10 +4,14 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yanxi.yanxiapi.entity.Assignment;
 import com.yanxi.yanxiapi.entity.AssignmentSubmission;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -23,12 +27,78 @@ public interface AssignmentMapper extends BaseMapper<Assignment> {
     List<Long> selectSubmittedAssignmentIds(@Param("studentId") Long studentId);
 
     /**
-     * 插入作业提交记录
+     * 按键集分页查询学生所在班级的作业，提交状态的计算、过滤与排序都在数据库完成
+     *
+     * @param studentId       学生ID
+     * @param submitted       是否已提交（可选）
+     * @param cursorCreatedAt 上一页最后一条的创建时间（可选）
+     * @param cursorId        上一页最后一条的ID（可选）
+     * @param limit           每页数量
+     * @return 按创建时间倒序的作业列表，附带 submitted 字段
+     */
+    @Select("<script>" +
+            "SELECT a.*, EXISTS(SELECT 1 FROM assignment_submission s " +
+            "  WHERE s.assignment_id = a.id AND s.student_id = #{studentId}) AS submitted " +
+            "FROM assignment a " +
+            "JOIN class_student cs ON cs.class_id = a.class_id AND cs.student_id = #{studentId} " +
+            "<where>" +
+            "  <if test=\"submitted != null and submitted\">" +
+            "    AND EXISTS(SELECT 1 FROM assignment_submission s WHERE s.assignment_id = a.id AND s.student_id = #{studentId})" +
+            "  </if>" +
+            "  <if test=\"submitted != null and !submitted\">" +
+            "    AND NOT EXISTS(SELECT 1 FROM assignment_submission s WHERE s.assignment_id = a.id AND s.student_id = #{studentId})" +
+            "  </if>" +
+            "  <if test=\"cursorCreatedAt != null\">" +
+            "    AND (a.created_at &lt; #{cursorCreatedAt} OR (a.created_at = #{cursorCreatedAt} AND a.id &lt; #{cursorId}))" +
+            "  </if>" +
+            "</where>" +
+            "ORDER BY a.created_at DESC, a.id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Assignment> selectStudentAssignments(@Param("studentId") Long studentId,
+                                              @Param("submitted") Boolean submitted,
+                                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                              @Param("cursorId") Long cursorId,
+                                              @Param("limit") int limit);
+
+    /**
+     * 锁定作业行，同一作业的提交依次执行
+     */
+    @Select("SELECT * FROM assignment WHERE id = #{id} FOR UPDATE")
+    Assignment selectByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 插入首次提交，已存在时由 (assignment_id, student_id) 唯一索引忽略
+     *
+     * @return 影响的行数：1-新增，0-已有提交
+     */
+    @Insert("INSERT IGNORE INTO assignment_submission (assignment_id, student_id, file_url, submitted_at) " +
+            "VALUES (#{assignmentId}, #{studentId}, #{fileUrl}, #{submittedAt})")
+    int insertSubmissionIgnore(AssignmentSubmission submission);
+
+    /**
+     * 插入或覆盖作业提交记录，依赖 (assignment_id, student_id) 唯一索引
      *
      * @param submission 作业提交记录
-     * @return 影响的行数
+     * @return 影响的行数：1-新增，2-覆盖，0-内容未变
      */
     @Insert("INSERT INTO assignment_submission (assignment_id, student_id, file_url, submitted_at) " +
-            "VALUES (#{assignmentId}, #{studentId}, #{fileUrl}, #{submittedAt})")
-    int insertSubmission(AssignmentSubmission submission);
-} 
\ No newline at end of file
+            "VALUES (#{assignmentId}, #{studentId}, #{fileUrl}, #{submittedAt}) " +
+            "ON DUPLICATE KEY UPDATE file_url = VALUES(file_url), submitted_at = VALUES(submitted_at)")
+    int upsertSubmission(AssignmentSubmission submission);
+
+    /**
+     * 迁移文件存储时改写文件地址，只改仍指向旧地址的行
+     *
+     * @return 影响的行数
+     */
+    @Update("UPDATE assignment SET file_url = #{newUrl} WHERE file_url = #{oldUrl}")
+    int updateFileUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+
+    /**
+     * 流式读取所有作业的检索字段，用于构建搜索索引；需在事务内遍历
+     */
+    @Select("SELECT id, class_id, teacher_id, title, description, due_date, created_at FROM assignment")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<Assignment> streamAll();
+}
@@ -0,0 +1,34 @@
+package com.yanxi.yanxiapi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yanxi.yanxiapi.entity.AssignmentSubmissionHistory;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+@Mapper
+public interface AssignmentSubmissionHistoryMapper extends BaseMapper<AssignmentSubmissionHistory> {
+
+    /**
+     * 查询学生某个作业的历史版本，最新的在前
+     *
+     * @param assignmentId 作业ID
+     * @param studentId    学生ID
+     * @return 历史版本列表
+     */
+    @Select("SELECT * FROM assignment_submission_history " +
+            "WHERE assignment_id = #{assignmentId} AND student_id = #{studentId} ORDER BY id DESC")
+    List<AssignmentSubmissionHistory> selectByAssignmentAndStudent(@Param("assignmentId") Long assignmentId,
+                                                                   @Param("studentId") Long studentId);
+
+    /**
+     * 迁移文件存储时改写文件地址，只改仍指向旧地址的行
+     *
+     * @return 影响的行数
+     */
+    @Update("UPDATE assignment_submission_history SET file_url = #{newUrl} WHERE file_url = #{oldUrl}")
+    int updateFileUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+}
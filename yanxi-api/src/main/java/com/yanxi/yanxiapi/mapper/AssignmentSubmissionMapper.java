@@ -1,9 +1,15 @@
 package com.yanxi.yanxiapi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.yanxi.yanxiapi.entity.AssignmentSubmission;
+import com.yanxi.yanxiapi.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -11,4 +17,96 @@ public interface AssignmentSubmissionMapper extends BaseMapper<AssignmentSubmiss
     
     @Select("SELECT * FROM assignment_submission WHERE assignment_id = #{assignmentId}")
     List<AssignmentSubmission> selectByAssignmentId(Long assignmentId);
-} 
\ No newline at end of file
+
+    /**
+     * 查询并锁定学生的提交记录，同一学生的并发提交在此排队
+     *
+     * @param assignmentId 作业ID
+     * @param studentId    学生ID
+     * @return 提交记录，未提交时为null
+     */
+    @Select("SELECT * FROM assignment_submission " +
+            "WHERE assignment_id = #{assignmentId} AND student_id = #{studentId} FOR UPDATE")
+    AssignmentSubmission selectForUpdate(@Param("assignmentId") Long assignmentId,
+                                         @Param("studentId") Long studentId);
+
+    /**
+     * 查询学生的提交记录（不加锁）
+     */
+    @Select("SELECT * FROM assignment_submission WHERE assignment_id = #{assignmentId} AND student_id = #{studentId}")
+    AssignmentSubmission selectByAssignmentAndStudent(@Param("assignmentId") Long assignmentId,
+                                                      @Param("studentId") Long studentId);
+
+    /**
+     * 按学生ID键集分批查询作业的提交，用于打包下载
+     *
+     * @param assignmentId   作业ID
+     * @param afterStudentId 上一批最后一个学生ID
+     * @param limit          每批数量
+     * @return 学生列表，附带 submissionId、submittedAt、submissionFileUrl
+     */
+    @Select("SELECT u.id, u.username, u.real_name, " +
+            "s.id AS submission_id, s.submitted_at, s.file_url AS submission_file_url " +
+            "FROM assignment_submission s " +
+            "JOIN user u ON u.id = s.student_id " +
+            "WHERE s.assignment_id = #{assignmentId} AND s.student_id > #{afterStudentId} " +
+            "ORDER BY s.student_id LIMIT #{limit}")
+    List<User> selectSubmissionFiles(@Param("assignmentId") Long assignmentId,
+                                     @Param("afterStudentId") Long afterStudentId,
+                                     @Param("limit") int limit);
+
+    /**
+     * 按提交ID键集分批查询已过截止时间的作业的提交文件，用于冷存储压缩
+     *
+     * @param dueBefore 作业截止时间早于该时间
+     * @param afterId   上一批最后一个提交ID
+     * @param limit     每批数量
+     * @return 提交记录，只含 id 和 fileUrl
+     */
+    @Select("SELECT s.id, s.file_url FROM assignment_submission s " +
+            "JOIN assignment a ON a.id = s.assignment_id " +
+            "WHERE s.id > #{afterId} AND a.due_date < #{dueBefore} AND s.file_url LIKE 'blobs/%' " +
+            "ORDER BY s.id LIMIT #{limit}")
+    List<AssignmentSubmission> selectColdFiles(@Param("dueBefore") LocalDateTime dueBefore,
+                                               @Param("afterId") Long afterId,
+                                               @Param("limit") int limit);
+
+    /**
+     * 分页查询班级学生名单及其作业提交状态（一条关联查询）
+     * <p>
+     * 表别名不能用 cs（JSqlParser 的关键字），否则分页插件无法解析，只能把整条查询包进子查询做 COUNT
+     *
+     * @param page         分页参数
+     * @param assignmentId 作业ID
+     * @param classId      作业所属班级ID
+     * @param sort         排序：submittedAt-按提交时间，其他-按姓名
+     * @return 学生列表，附带 submitted、submittedAt、submissionId、submissionFileUrl
+     */
+    @Select("<script>" +
+            "SELECT u.id, u.username, u.role AS user_type, u.real_name, u.email, u.phone, " +
+            "u.created_at, u.updated_at, " +
+            "s.id AS submission_id, s.submitted_at, s.file_url AS submission_file_url, " +
+            "(s.id IS NOT NULL) AS submitted " +
+            "FROM class_student m " +
+            "JOIN user u ON u.id = m.student_id " +
+            "LEFT JOIN assignment_submission s " +
+            "  ON s.assignment_id = #{assignmentId} AND s.student_id = m.student_id " +
+            "WHERE m.class_id = #{classId} " +
+            "<choose>" +
+            "  <when test=\"sort == 'submittedAt'\">ORDER BY s.submitted_at IS NULL, s.submitted_at DESC, u.id</when>" +
+            "  <otherwise>ORDER BY u.real_name, u.username, u.id</otherwise>" +
+            "</choose>" +
+            "</script>")
+    IPage<User> selectAssignmentRoster(Page<User> page,
+                                       @Param("assignmentId") Long assignmentId,
+                                       @Param("classId") Long classId,
+                                       @Param("sort") String sort);
+
+    /**
+     * 迁移文件存储时改写文件地址，只改仍指向旧地址的行
+     *
+     * @return 影响的行数
+     */
+    @Update("UPDATE assignment_submission SET file_url = #{newUrl} WHERE file_url = #{oldUrl}")
+    int updateFileUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+}
@@ -3,7 +3,12 @@ package com.yanxi.yanxiapi.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yanxi.yanxiapi.entity.ClassEntity;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import java.util.Date;
 import java.util.List;
 
 @Mapper
@@ -14,4 +19,82 @@ public interface ClassMapper extends BaseMapper<ClassEntity> {
     
     @Select("SELECT * FROM class WHERE code = #{code}")
     ClassEntity findByCode(String code);
-} 
\ No newline at end of file
+
+    /**
+     * 查询学生人数
+     */
+    @Select("SELECT student_count FROM class WHERE id = #{classId}")
+    Integer selectStudentCount(@Param("classId") Long classId);
+
+    /**
+     * 原子增减学生人数
+     */
+    @Update("UPDATE class SET student_count = student_count + #{delta} WHERE id = #{classId}")
+    int incrementStudentCount(@Param("classId") Long classId, @Param("delta") int delta);
+
+    /**
+     * 锁定一段ID范围内的班级，核对期间并发的加入/移出在此排队
+     *
+     * @return 范围内的班级ID
+     */
+    @Select("SELECT id FROM class WHERE id > #{afterId} ORDER BY id LIMIT #{limit} FOR UPDATE")
+    List<Long> lockIdRange(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 锁定班级行，批量导入期间并发的加入/移出在此排队
+     *
+     * @return 班级ID，班级不存在时为null
+     */
+    @Select("SELECT id FROM class WHERE id = #{classId} FOR UPDATE")
+    Long lockById(@Param("classId") Long classId);
+
+    /**
+     * 按 class_student 的实际行数修正一段ID范围内的学生人数
+     *
+     * @return 修正的班级数
+     */
+    @Update("UPDATE class c " +
+            "LEFT JOIN (SELECT class_id, COUNT(*) AS cnt FROM class_student " +
+            "WHERE class_id > #{afterId} AND class_id <= #{toId} GROUP BY class_id) t ON t.class_id = c.id " +
+            "SET c.student_count = COALESCE(t.cnt, 0) " +
+            "WHERE c.id > #{afterId} AND c.id <= #{toId} AND c.student_count <> COALESCE(t.cnt, 0)")
+    int reconcileStudentCounts(@Param("afterId") Long afterId, @Param("toId") Long toId);
+
+    /**
+     * 按加入时间倒序键集分页查询学生所在的班级（一条关联查询）
+     *
+     * @param studentId    学生ID
+     * @param joinedBefore 游标的加入时间，为空时从第一页开始
+     * @param beforeId     游标的加入记录ID
+     * @param limit        查询条数
+     * @return 班级列表，附带 membershipId、joinedAt
+     */
+    @Select("<script>" +
+            "SELECT c.*, cs.id AS membership_id, cs.created_at AS joined_at " +
+            "FROM class_student cs " +
+            "JOIN class c ON c.id = cs.class_id " +
+            "WHERE cs.student_id = #{studentId} " +
+            "<if test='joinedBefore != null'>" +
+            "AND (cs.created_at &lt; #{joinedBefore} OR (cs.created_at = #{joinedBefore} AND cs.id &lt; #{beforeId})) " +
+            "</if>" +
+            "ORDER BY cs.created_at DESC, cs.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ClassEntity> selectByStudentId(@Param("studentId") Long studentId,
+                                        @Param("joinedBefore") Date joinedBefore,
+                                        @Param("beforeId") Long beforeId,
+                                        @Param("limit") int limit);
+
+    /**
+     * 流式读取所有班级的ID和教师，用于构建搜索索引；需在事务内遍历
+     */
+    @Select("SELECT id, teacher_id FROM class")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ClassEntity> streamAll();
+
+    /**
+     * 流式读取所有班级代码，用于恢复本节点的代码序号；需在事务内遍历
+     */
+    @Select("SELECT code FROM class")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<String> streamCodes();
+}
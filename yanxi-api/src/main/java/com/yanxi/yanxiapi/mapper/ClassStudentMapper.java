@@ -2,8 +2,15 @@ package com.yanxi.yanxiapi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yanxi.yanxiapi.entity.ClassStudent;
+import com.yanxi.yanxiapi.entity.User;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Mapper
@@ -17,6 +24,54 @@ public interface ClassStudentMapper extends BaseMapper<ClassStudent> {
     
     @Select("SELECT * FROM class_student WHERE class_id = #{classId} AND student_id = #{studentId}")
     ClassStudent findByClassIdAndStudentId(Long classId, Long studentId);
+
+    /**
+     * 插入班级成员，已存在时由 uk_class_student 忽略，不需要先查询
+     *
+     * @return 影响的行数，0表示学生已在班级中（或班级已不存在）
+     */
+    @Insert("INSERT IGNORE INTO class_student (class_id, student_id) VALUES (#{classId}, #{studentId})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertIgnore(ClassStudent classStudent);
+
+    /**
+     * 多行插入班级成员，已存在的组合由 uk_class_student 忽略
+     *
+     * @return 实际插入的行数
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO class_student (class_id, student_id) VALUES " +
+            "<foreach collection='studentIds' item='studentId' separator=','>(#{classId}, #{studentId})</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("classId") Long classId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * 查询给定学生中已在班级内的学生ID
+     */
+    @Select("<script>" +
+            "SELECT student_id FROM class_student WHERE class_id = #{classId} AND student_id IN " +
+            "<foreach collection='studentIds' item='studentId' open='(' separator=',' close=')'>#{studentId}</foreach>" +
+            "</script>")
+    List<Long> selectStudentIdsInClass(@Param("classId") Long classId,
+                                       @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * 查询给定学生中成员记录ID不小于 fromId 的学生ID，用于找出多行插入中实际插入的行
+     */
+    @Select("<script>" +
+            "SELECT student_id FROM class_student WHERE class_id = #{classId} AND id &gt;= #{fromId} " +
+            "AND student_id IN " +
+            "<foreach collection='studentIds' item='studentId' open='(' separator=',' close=')'>#{studentId}</foreach>" +
+            "</script>")
+    List<Long> selectStudentIdsInsertedSince(@Param("classId") Long classId,
+                                             @Param("fromId") Long fromId,
+                                             @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * 当前连接上一条插入语句生成的第一个自增ID
+     */
+    @Select("SELECT LAST_INSERT_ID()")
+    Long selectLastInsertId();
     
     /**
      * 根据学生ID查询其所在的所有班级ID
@@ -33,4 +88,43 @@ public interface ClassStudentMapper extends BaseMapper<ClassStudent> {
      */
     @Select("SELECT student_id FROM class_student WHERE class_id = #{classId}")
     List<Long> selectStudentIdsByClassId(Long classId);
-} 
\ No newline at end of file
+
+    /**
+     * 按注册时间倒序键集分页查询教师各班级的学生（去重，一条关联查询）
+     *
+     * @param teacherId     教师ID
+     * @param classId       班级ID，为空时查询教师的所有班级
+     * @param emailPrefix   邮箱前缀（已转义通配符），为空时不过滤；前缀匹配可使用邮箱索引
+     * @param createdBefore 游标的注册时间，为空时从第一页开始
+     * @param beforeId      游标的学生ID
+     * @param limit         查询条数
+     * @return 学生列表
+     */
+    @Select("<script>" +
+            "SELECT DISTINCT u.id, u.username, u.role AS user_type, u.real_name, u.email, u.phone, " +
+            "u.created_at, u.updated_at " +
+            "FROM class c " +
+            "JOIN class_student cs ON cs.class_id = c.id " +
+            "JOIN user u ON u.id = cs.student_id " +
+            "WHERE c.teacher_id = #{teacherId} " +
+            "<if test='classId != null'>AND c.id = #{classId} </if>" +
+            "<if test='emailPrefix != null'>AND u.email LIKE CONCAT(#{emailPrefix}, '%') </if>" +
+            "<if test='createdBefore != null'>" +
+            "AND (u.created_at &lt; #{createdBefore} OR (u.created_at = #{createdBefore} AND u.id &lt; #{beforeId})) " +
+            "</if>" +
+            "ORDER BY u.created_at DESC, u.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<User> selectTeacherStudents(@Param("teacherId") Long teacherId,
+                                     @Param("classId") Long classId,
+                                     @Param("emailPrefix") String emailPrefix,
+                                     @Param("createdBefore") Date createdBefore,
+                                     @Param("beforeId") Long beforeId,
+                                     @Param("limit") int limit);
+
+    /**
+     * 流式读取所有班级成员关系，用于构建搜索索引；需在事务内遍历
+     */
+    @Select("SELECT class_id, student_id FROM class_student")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ClassStudent> streamAll();
+}
@@ -0,0 +1,58 @@
+package com.yanxi.yanxiapi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yanxi.yanxiapi.entity.FileBlob;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface FileBlobMapper extends BaseMapper<FileBlob> {
+
+    /**
+     * 增加一次引用，内容首次出现时插入
+     *
+     * @param sha256 文件内容的SHA-256
+     * @param size   文件大小
+     * @return 影响的行数：1-新内容，2-已存在
+     */
+    @Insert("INSERT INTO file_blob (sha256, size, ref_count, created_at) VALUES (#{sha256}, #{size}, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1")
+    int acquire(@Param("sha256") String sha256, @Param("size") long size);
+
+    /**
+     * 查询并锁定内容记录，释放引用与新增引用在此排队
+     */
+    @Select("SELECT * FROM file_blob WHERE sha256 = #{sha256} FOR UPDATE")
+    FileBlob selectForUpdate(@Param("sha256") String sha256);
+
+    /**
+     * 为已存在的内容增加一次引用
+     *
+     * @return 影响的行数，0表示内容不存在
+     */
+    @Update("UPDATE file_blob SET ref_count = ref_count + 1 WHERE sha256 = #{sha256}")
+    int retain(@Param("sha256") String sha256);
+
+    /**
+     * 记录内容的压缩方式
+     */
+    @Update("UPDATE file_blob SET compression = #{compression}, stored_size = #{storedSize} WHERE sha256 = #{sha256}")
+    int updateCompression(@Param("sha256") String sha256,
+                          @Param("compression") String compression,
+                          @Param("storedSize") Long storedSize);
+
+    /**
+     * 更新最近读取时间
+     */
+    @Update("UPDATE file_blob SET last_accessed_at = NOW() WHERE sha256 = #{sha256}")
+    int touch(@Param("sha256") String sha256);
+
+    /**
+     * 减少一次引用
+     */
+    @Update("UPDATE file_blob SET ref_count = ref_count - 1 WHERE sha256 = #{sha256} AND ref_count > 0")
+    int release(@Param("sha256") String sha256);
+}
@@ -0,0 +1,79 @@
+package com.yanxi.yanxiapi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yanxi.yanxiapi.entity.FileUpload;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface FileUploadMapper extends BaseMapper<FileUpload> {
+
+    /**
+     * 推进已接收的字节数，只增不减，重传已写过的分片不会回退进度
+     *
+     * @param id  上传ID
+     * @param end 本次分片写入后的末尾位置
+     * @param now 当前时间
+     * @return 影响的行数，0表示会话不存在或已完成
+     */
+    @Update("UPDATE file_upload SET received_size = GREATEST(received_size, #{end}), updated_at = #{now} " +
+            "WHERE id = #{id} AND status = 'UPLOADING'")
+    int advanceReceived(@Param("id") String id, @Param("end") long end, @Param("now") LocalDateTime now);
+
+    /**
+     * 全部字节接收完成后认领完成操作，同一会话只有一个请求能认领成功
+     *
+     * @return 影响的行数，0表示尚未接收完整、已被其他请求认领或已完成
+     */
+    @Update("UPDATE file_upload SET status = 'COMPLETING', updated_at = #{now} " +
+            "WHERE id = #{id} AND status = 'UPLOADING' AND received_size = total_size")
+    int claimCompletion(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * 存储失败时交还认领，会话回到上传中，客户端可重试完成
+     */
+    @Update("UPDATE file_upload SET status = 'UPLOADING', updated_at = #{now} " +
+            "WHERE id = #{id} AND status = 'COMPLETING'")
+    int releaseCompletion(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * 认领完成操作的请求存储文件后标记为已完成
+     *
+     * @return 影响的行数，0表示会话已被过期清理
+     */
+    @Update("UPDATE file_upload SET status = 'COMPLETED', file_url = #{fileUrl}, updated_at = #{now} " +
+            "WHERE id = #{id} AND status = 'COMPLETING'")
+    int markCompleted(@Param("id") String id, @Param("fileUrl") String fileUrl, @Param("now") LocalDateTime now);
+
+    /**
+     * 认领已完成的上传，认领后会话删除，文件归调用方所有
+     *
+     * @return 影响的行数，0表示不存在、未完成或不属于该用户
+     */
+    @Delete("DELETE FROM file_upload WHERE id = #{id} AND user_id = #{userId} AND status = 'COMPLETED'")
+    int deleteCompleted(@Param("id") String id, @Param("userId") Long userId);
+
+    /**
+     * 查询长时间未更新的会话（未完成或完成后未被使用）
+     *
+     * @param before 截止时间
+     * @param limit  每批数量
+     * @return 过期会话
+     */
+    @Select("SELECT * FROM file_upload WHERE updated_at < #{before} ORDER BY updated_at LIMIT #{limit}")
+    List<FileUpload> selectStale(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 迁移文件存储时改写文件地址，只改仍指向旧地址的行
+     *
+     * @return 影响的行数
+     */
+    @Update("UPDATE file_upload SET file_url = #{newUrl} WHERE file_url = #{oldUrl}")
+    int updateFileUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+}
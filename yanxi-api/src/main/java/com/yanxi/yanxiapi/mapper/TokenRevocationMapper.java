@@ -0,0 +1,41 @@
+package com.yanxi.yanxiapi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yanxi.yanxiapi.entity.TokenRevocation;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface TokenRevocationMapper extends BaseMapper<TokenRevocation> {
+
+    /**
+     * 按 (revoked_at, id) 顺序查询位于 (afterRevokedAt, afterId) 之后且仍未失效的吊销记录
+     *
+     * @param afterRevokedAt 上一批最后一条的吊销时间
+     * @param afterId        上一批最后一条的ID
+     * @param now            当前时间
+     * @param limit          每批数量
+     * @return 吊销记录
+     */
+    @Select("SELECT * FROM token_revocation " +
+            "WHERE (revoked_at > #{afterRevokedAt} OR (revoked_at = #{afterRevokedAt} AND id > #{afterId})) " +
+            "AND expires_at > #{now} ORDER BY revoked_at, id LIMIT #{limit}")
+    List<TokenRevocation> selectActiveAfter(@Param("afterRevokedAt") LocalDateTime afterRevokedAt,
+                                            @Param("afterId") Long afterId,
+                                            @Param("now") LocalDateTime now,
+                                            @Param("limit") int limit);
+
+    /**
+     * 清理已失效的吊销记录
+     *
+     * @param now 当前时间
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM token_revocation WHERE expires_at <= #{now}")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
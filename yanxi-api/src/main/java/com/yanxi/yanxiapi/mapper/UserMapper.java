@@ -3,7 +3,13 @@ package com.yanxi.yanxiapi.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yanxi.yanxiapi.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
@@ -13,4 +19,29 @@ public interface UserMapper extends BaseMapper<User> {
     
     @Select("SELECT * FROM user WHERE email = #{email}")
     User findByEmail(String email);
-} 
\ No newline at end of file
+
+    /**
+     * 按用户名批量查询（不区分大小写），只返回导入名单需要的字段
+     */
+    @Select("<script>" +
+            "SELECT id, username, role AS user_type, email FROM user WHERE username IN " +
+            "<foreach collection='usernames' item='username' open='(' separator=',' close=')'>#{username}</foreach>" +
+            "</script>")
+    List<User> selectByUsernames(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * 按邮箱批量查询（不区分大小写），只返回导入名单需要的字段
+     */
+    @Select("<script>" +
+            "SELECT id, username, role AS user_type, email FROM user WHERE email IN " +
+            "<foreach collection='emails' item='email' open='(' separator=',' close=')'>#{email}</foreach>" +
+            "</script>")
+    List<User> selectByEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * 流式读取所有学生的检索字段，用于构建搜索索引；需在事务内遍历
+     */
+    @Select("SELECT id, username, role AS user_type, real_name, email, phone FROM user WHERE role = 'student'")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<User> streamStudents();
+}
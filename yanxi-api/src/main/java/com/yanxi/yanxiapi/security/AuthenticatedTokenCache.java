@@ -0,0 +1,74 @@
+package com.yanxi.yanxiapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验证JWT的本地缓存
+ * 以token的SHA-256为键，条目在token的exp时刻失效，命中时无需再解析token或查询数据库
+ */
+@Component
+public class AuthenticatedTokenCache {
+
+    private final Cache<String, CachedAuthentication> cache;
+
+    public AuthenticatedTokenCache(@Value("${jwt.cache.max-size:10000}") long maxSize,
+                                   MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        // 注册命中、未命中、淘汰等指标（cache.gets / cache.evictions 等）
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.token");
+    }
+
+    public CachedAuthentication get(String tokenHash) {
+        CachedAuthentication cached = cache.getIfPresent(tokenHash);
+        if (cached != null && cached.getExpiresAtMillis() <= System.currentTimeMillis()) {
+            cache.invalidate(tokenHash);
+            return null;
+        }
+        return cached;
+    }
+
+    public void put(String tokenHash, CachedAuthentication authentication) {
+        if (authentication.getExpiresAtMillis() > System.currentTimeMillis()) {
+            cache.put(tokenHash, authentication);
+        }
+    }
+
+    public void invalidate(String tokenHash) {
+        cache.invalidate(tokenHash);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static class TokenExpiry implements Expiry<String, CachedAuthentication> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedAuthentication value, long currentTime) {
+            long remainingMillis = value.getExpiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAuthentication value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAuthentication value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.yanxi.yanxiapi.security;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * 已验证token对应的认证信息，缓存至token过期
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedAuthentication {
+
+    /**
+     * 认证主体
+     */
+    private final UserPrincipal principal;
+
+    /**
+     * 权限列表
+     */
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    /**
+     * token过期时间（毫秒时间戳）
+     */
+    private final long expiresAtMillis;
+}
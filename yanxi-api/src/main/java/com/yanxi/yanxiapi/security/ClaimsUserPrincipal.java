@@ -0,0 +1,16 @@
+package com.yanxi.yanxiapi.security;
+
+import lombok.Value;
+
+/**
+ * 由JWT声明（sub、userId、userType）构造的登录用户，无需查询 user 表
+ */
+@Value
+public class ClaimsUserPrincipal implements UserPrincipal {
+
+    Long id;
+
+    String username;
+
+    String userType;
+}
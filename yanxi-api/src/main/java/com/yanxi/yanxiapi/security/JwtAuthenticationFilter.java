@@ -1,13 +1,19 @@
 package com.yanxi.yanxiapi.security;
 
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.service.TokenRevocationService;
 import com.yanxi.yanxiapi.service.UserService;
+import com.yanxi.yanxiapi.utils.HashUtils;
 import com.yanxi.yanxiapi.utils.JwtUtils;
+import com.yanxi.yanxiapi.utils.VerifiedToken;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -19,11 +25,21 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    /**
+     * database：每个token首次出现时从 user 表加载用户；claims：直接使用token中的声明
+     */
+    private static final String AUTH_MODE_CLAIMS = "claims";
+
+    @Value("${jwt.auth-mode:database}")
+    private String authMode;
+
     @Autowired
     private UserDetailsService userDetailsService;
 
@@ -33,45 +49,91 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private AuthenticatedTokenCache tokenCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        
+
         final String authorizationHeader = request.getHeader("Authorization");
-        logger.info("Authorization header: {}", authorizationHeader);
-
-        String username = null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                username = jwtUtils.extractUsername(jwt);
-                logger.info("Extracted username from token: {}", username);
-            } catch (ExpiredJwtException e) {
-                logger.error("Token expired: {}", e.getMessage());
-            } catch (Exception e) {
-                logger.error("Invalid JWT token: {}", e.getMessage());
+
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
+            String tokenHash = HashUtils.sha256Hex(jwt);
+
+            // 先查缓存，命中则无需解析token和查询数据库
+            CachedAuthentication authentication = tokenCache.get(tokenHash);
+            if (authentication == null) {
+                authentication = authenticate(jwt);
+                if (authentication != null) {
+                    tokenCache.put(tokenHash, authentication);
+                }
             }
-        }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            logger.info("Loaded user details: {}", userDetails);
+            // 布隆过滤器未命中即可放行，只有可能被吊销的token才查精确集合
+            if (authentication != null && tokenRevocationService.isRevoked(tokenHash)) {
+                logger.debug("Rejected revoked JWT token");
+                tokenCache.invalidate(tokenHash);
+                authentication = null;
+            }
 
-            if (jwtUtils.validateToken(jwt, userDetails)) {
-                // 获取实际的 User 对象
-                User user = userService.getUserByUsername(username)
-                        .orElseThrow(() -> new RuntimeException("User not found"));
-                
+            if (authentication != null) {
                 UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                        user, null, userDetails.getAuthorities());
+                        authentication.getPrincipal(), null, authentication.getAuthorities());
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                logger.info("Set authentication in SecurityContext for user: {}", username);
-                logger.info("User authorities: {}", userDetails.getAuthorities());
+                logger.debug("Set authentication in SecurityContext, authorities: {}", authentication.getAuthorities());
             }
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * 解析并校验token，加载对应的用户，校验失败返回null
+     */
+    private CachedAuthentication authenticate(String jwt) {
+        try {
+            // 签名、过期时间和subject在一次解析中完成校验
+            VerifiedToken token = jwtUtils.verifyToken(jwt);
+            String username = token.getSubject();
+            logger.debug("Extracted username from token: {}", username);
+
+            if (AUTH_MODE_CLAIMS.equalsIgnoreCase(authMode)) {
+                return authenticateFromClaims(token);
+            }
+
+            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+
+            // 获取实际的 User 对象
+            User user = userService.getUserByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            return new CachedAuthentication(user, userDetails.getAuthorities(),
+                    token.getExpiresAtMillis());
+        } catch (ExpiredJwtException e) {
+            logger.error("Token expired: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 直接由token声明构造登录用户，不访问 user 表
+     */
+    private CachedAuthentication authenticateFromClaims(VerifiedToken token) {
+        if (token.getUserId() == null || token.getUserType() == null) {
+            logger.error("JWT token is missing userId or userType claims");
+            return null;
+        }
+        List<GrantedAuthority> authorities = Collections.singletonList(
+                new SimpleGrantedAuthority("ROLE_" + token.getUserType()));
+        return new CachedAuthentication(
+                new ClaimsUserPrincipal(token.getUserId(), token.getSubject(), token.getUserType()),
+                authorities, token.getExpiresAtMillis());
+    }
 }
@@ -0,0 +1,119 @@
+package com.yanxi.yanxiapi.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 密码哈希专用线程池
+ * BCrypt计算量大，放在固定大小的线程池中执行，避免登录高峰占满Tomcat请求线程；
+ * 队列满时立即拒绝（PasswordHashingRejectedException），由控制器返回503
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final int retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${security.password-hashing.pool-size:0}") int poolSize,
+                                   @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${security.password-hashing.timeout-ms:5000}") long timeoutMillis,
+                                   @Value("${security.password-hashing.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        // 未配置时按CPU核数
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting in the queue")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks currently running")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("Password hashing requests rejected because the pool was saturated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 加密密码
+     */
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> encodeTimer.recordCallable(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * 校验密码
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> matchesTimer.recordCallable(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("服务繁忙，请稍后重试", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("服务繁忙，请稍后重试", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,20 @@
+package com.yanxi.yanxiapi.security;
+
+import lombok.Getter;
+
+/**
+ * 密码哈希线程池已满或等待超时，调用方应稍后重试
+ */
+@Getter
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    /**
+     * 建议的重试间隔（秒）
+     */
+    private final int retryAfterSeconds;
+
+    public PasswordHashingRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,23 @@
+package com.yanxi.yanxiapi.security;
+
+/**
+ * 当前登录用户
+ * 业务代码只依赖id、用户名和角色，既可以是完整的 User 实体，也可以是直接由JWT声明构造的轻量主体
+ */
+public interface UserPrincipal {
+
+    /**
+     * 用户ID
+     */
+    Long getId();
+
+    /**
+     * 用户名
+     */
+    String getUsername();
+
+    /**
+     * 用户类型：STUDENT-学生，TEACHER-教师
+     */
+    String getUserType();
+}
@@ -1,10 +1,16 @@
 package com.yanxi.yanxiapi.service;
 
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.yanxi.yanxiapi.dto.CursorPage;
+import com.yanxi.yanxiapi.dto.PageCursor;
 import com.yanxi.yanxiapi.entity.Assignment;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -12,31 +18,45 @@ public interface AssignmentService extends IService<Assignment> {
     /**
      * 创建作业
      */
-    Assignment createAssignment(Long classId, String title, String description, MultipartFile file, LocalDateTime dueDate, User teacher);
+    Assignment createAssignment(Long classId, String title, String description, MultipartFile file, LocalDateTime dueDate, UserPrincipal teacher);
+
+    /**
+     * 使用已完成的分片上传创建作业
+     */
+    Assignment createAssignmentFromUpload(Long classId, String title, String description, String uploadId, LocalDateTime dueDate, UserPrincipal teacher);
     
     /**
-     * 获取作业列表
+     * 按创建时间倒序分页获取作业列表
      * @param classId 班级ID（可选）
      * @param studentEmail 学生邮箱（可选）
      * @param teacher 当前教师
+     * @param cursor 分页游标（可选，为空时从第一页开始）
+     * @param limit 每页数量
      * @return 作业列表
      */
-    List<Assignment> getAssignments(Long classId, String studentEmail, User teacher);
+    CursorPage<Assignment> getAssignments(Long classId, String studentEmail, UserPrincipal teacher,
+                                          PageCursor cursor, int limit);
 
     /**
-     * 获取作业的学生列表
+     * 分页获取作业的学生列表及提交状态
      * @param assignmentId 作业ID
+     * @param page 页码，从1开始
+     * @param size 每页数量
+     * @param sort 排序：name-按姓名，submittedAt-按提交时间
      * @return 学生列表
      */
-    List<User> getAssignmentStudents(Long assignmentId);
+    IPage<User> getAssignmentStudents(Long assignmentId, long page, long size, String sort);
 
     /**
-     * 获取当前学生的作业列表
+     * 按创建时间倒序分页获取当前学生的作业列表
      * @param submitted 是否已提交（可选）
      * @param student 当前登录的学生
+     * @param cursor 分页游标（可选，为空时从第一页开始）
+     * @param limit 每页数量
      * @return 作业列表
      */
-    List<Assignment> getStudentAssignments(Boolean submitted, User student);
+    CursorPage<Assignment> getStudentAssignments(Boolean submitted, UserPrincipal student,
+                                                 PageCursor cursor, int limit);
 
     /**
      * 学生提交作业
@@ -45,5 +65,21 @@ public interface AssignmentService extends IService<Assignment> {
      * @param student 当前登录的学生
      * @return 更新后的作业信息
      */
-    Assignment submitAssignment(Long assignmentId, MultipartFile file, User student);
-} 
\ No newline at end of file
+    Assignment submitAssignment(Long assignmentId, MultipartFile file, UserPrincipal student);
+
+    /**
+     * 学生使用已完成的分片上传提交作业
+     * @param assignmentId 作业ID
+     * @param uploadId 分片上传ID
+     * @param student 当前登录的学生
+     * @return 更新后的作业信息
+     */
+    Assignment submitUploadedAssignment(Long assignmentId, String uploadId, UserPrincipal student);
+
+    /**
+     * 将作业的全部提交按学生分目录打包为ZIP写出，边读边写，内存占用与提交数量无关
+     * @param assignment 作业
+     * @param out 输出流
+     */
+    void exportSubmissions(Assignment assignment, OutputStream out) throws IOException;
+}
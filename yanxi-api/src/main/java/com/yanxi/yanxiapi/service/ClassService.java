@@ -1,9 +1,13 @@
 package com.yanxi.yanxiapi.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.yanxi.yanxiapi.dto.BulkImportResult;
+import com.yanxi.yanxiapi.dto.CursorPage;
+import com.yanxi.yanxiapi.dto.PageCursor;
 import com.yanxi.yanxiapi.entity.ClassEntity;
 import com.yanxi.yanxiapi.entity.ClassStudent;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,17 +19,22 @@ public interface ClassService extends IService<ClassEntity> {
     /**
      * 获取教师的所有班级
      */
-    List<ClassEntity> getClassesByTeacher(User teacher);
+    List<ClassEntity> getClassesByTeacher(UserPrincipal teacher);
 
     /**
-     * 获取学生的所有班级
+     * 按创建时间倒序分页获取教师的班级
      */
-    List<ClassStudent> getClassesByStudent(User student);
+    CursorPage<ClassEntity> getClassesByTeacher(UserPrincipal teacher, PageCursor cursor, int limit);
+
+    /**
+     * 按加入时间倒序分页获取学生的班级，已删除的班级不返回
+     */
+    CursorPage<ClassEntity> getClassesByStudent(UserPrincipal student, PageCursor cursor, int limit);
 
     /**
      * 创建新班级
      */
-    ClassEntity createClass(String name, User teacher);
+    ClassEntity createClass(String name, UserPrincipal teacher);
 
     /**
      * 删除班级
@@ -35,12 +44,20 @@ public interface ClassService extends IService<ClassEntity> {
     /**
      * 将学生添加到班级
      */
-    ClassStudent addStudentToClass(ClassEntity classEntity, User student);
+    ClassStudent addStudentToClass(ClassEntity classEntity, UserPrincipal student);
+
+    /**
+     * 按用户名或邮箱批量把学生加入班级，已在班级中的学生跳过
+     * @param classEntity 班级
+     * @param identifiers 名单，每项为用户名或邮箱（含@）
+     * @return 逐行结果和按状态的汇总
+     */
+    BulkImportResult importStudents(ClassEntity classEntity, List<String> identifiers);
 
     /**
      * 从班级中移除学生
      */
-    void removeStudentFromClass(ClassEntity classEntity, User student);
+    void removeStudentFromClass(ClassEntity classEntity, UserPrincipal student);
 
     /**
      * 根据班级代码获取班级
@@ -57,12 +74,21 @@ public interface ClassService extends IService<ClassEntity> {
      */
     Integer getStudentCount(Long classId);
 
+    /**
+     * 按 class_student 的实际行数修正 class.student_count
+     * @return 修正的班级数
+     */
+    int reconcileStudentCounts();
+
     /**
      * 获取老师所有班级的学生列表
      * @param teacher 教师
-     * @param email 学生邮箱（可选）
+     * @param email 学生邮箱前缀（可选，不区分大小写）
      * @param classId 班级ID（可选）
-     * @return 学生列表
+     * @param cursor 分页游标（可选，为空时从第一页开始）
+     * @param limit 每页数量
+     * @return 按注册时间倒序的学生列表
      */
-    List<User> getTeacherAllStudents(User teacher, String email, Long classId);
+    CursorPage<User> getTeacherAllStudents(UserPrincipal teacher, String email, Long classId,
+                                           PageCursor cursor, int limit);
 }
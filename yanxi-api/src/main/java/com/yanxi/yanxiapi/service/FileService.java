@@ -1,11 +1,60 @@
 package com.yanxi.yanxiapi.service;
 
-import org.springframework.core.io.Resource;
+import com.yanxi.yanxiapi.dto.StoredFile;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
 
+/**
+ * 文件存储服务：按内容SHA-256去重存储，每个返回的文件地址持有一次引用，不再使用时需释放
+ */
 public interface FileService {
+    /**
+     * 保存上传的文件
+     * @return 文件地址，调用方持有一次引用
+     */
     String storeFile(MultipartFile file) throws IOException;
-    Resource loadFileAsResource(String fileName) throws IOException;
-} 
\ No newline at end of file
+
+    /**
+     * 保存已写好的本地文件（如分片上传的临时文件），源文件会被移走或删除
+     * @return 文件地址，调用方持有一次引用
+     */
+    String storeFile(Path source, String originalFilename) throws IOException;
+
+    /**
+     * 获取文件的存储位置与下载所需的元数据
+     * @throws IOException 文件不存在
+     */
+    StoredFile getStoredFile(String fileUrl) throws IOException;
+
+    /**
+     * 异步释放文件引用，引用数归零时删除文件；在事务中调用时，等事务提交后才释放，回滚则保留
+     *
+     * @param fileUrls 文件地址
+     */
+    void releaseFiles(Collection<String> fileUrls);
+
+    /**
+     * 为已存储的文件增加一次引用（同一地址被多条记录引用时）
+     * @throws IllegalArgumentException 文件不在去重存储中
+     */
+    void retainFile(String fileUrl);
+
+    /**
+     * 将长时间未读取的文件压缩后移入冷存储，之后读取时自动解压
+     * @param fileUrl 文件地址
+     * @param idleBefore 最近读取时间（从未读取时为存入时间）早于该时间才压缩
+     * @return 节省的字节数，未压缩（已处理过、近期读过、不在去重存储或压缩收益不足）时为0
+     */
+    long compressFile(String fileUrl, LocalDateTime idleBefore) throws IOException;
+
+    /**
+     * 将本地平铺存放的内容文件移入存储后端的分片键
+     * @param limit 本次最多移动的文件数
+     * @return 实际移动的文件数
+     */
+    int shardFlatBlobs(int limit) throws IOException;
+}
@@ -0,0 +1,53 @@
+package com.yanxi.yanxiapi.service;
+
+import com.yanxi.yanxiapi.entity.Assignment;
+import com.yanxi.yanxiapi.entity.ClassEntity;
+import com.yanxi.yanxiapi.entity.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 教师范围内的学生、作业搜索，查询只读内存索引，不访问数据库
+ * 索引启动时由数据库流式构建，之后随注册、加入班级、创建作业等操作增量更新；
+ * 写操作在事务中调用时，提交后才更新索引
+ */
+public interface SearchService {
+
+    /**
+     * 索引是否已构建完成
+     */
+    boolean isReady();
+
+    /**
+     * 在教师各班级的学生中搜索邮箱、姓名、用户名包含查询串的学生
+     * @param classId 只搜索该班级，为空时搜索教师的所有班级；不属于该教师的班级没有结果
+     * @return 按学生ID倒序，只含 id、username、realName、email、phone
+     */
+    List<User> searchStudents(Long teacherId, Long classId, String query, int limit);
+
+    /**
+     * 在教师的作业中搜索标题或描述包含查询串的作业
+     * @return 按作业ID倒序
+     */
+    List<Assignment> searchAssignments(Long teacherId, String query, int limit);
+
+    void indexStudent(User student);
+
+    void indexClass(ClassEntity classEntity);
+
+    void removeClass(Long classId);
+
+    void addClassStudent(Long classId, Long studentId);
+
+    void addClassStudents(Long classId, Collection<Long> studentIds);
+
+    void removeClassStudent(Long classId, Long studentId);
+
+    void indexAssignment(Assignment assignment);
+
+    /**
+     * 从数据库重新构建索引，构建期间仍使用旧索引回答查询
+     */
+    void rebuild();
+}
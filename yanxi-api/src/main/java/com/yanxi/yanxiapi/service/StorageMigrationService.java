@@ -0,0 +1,14 @@
+package com.yanxi.yanxiapi.service;
+
+/**
+ * 文件存储迁移：把旧的平铺目录中的文件分批移入分片的去重存储，并改写引用它们的 file_url
+ */
+public interface StorageMigrationService {
+
+    /**
+     * 迁移一批文件
+     * @param batchSize 本批最多迁移的文件数
+     * @return 实际迁移的文件数；为0时仍可能有过新或迁移失败、留待下一批的文件
+     */
+    int migrateBatch(int batchSize);
+}
@@ -0,0 +1,14 @@
+package com.yanxi.yanxiapi.service;
+
+/**
+ * 冷存储分层：作业截止并过了宽限期、且长时间未被读取的提交文件压缩存放
+ */
+public interface StorageTieringService {
+
+    /**
+     * 处理一批提交文件
+     * @param batchSize 本批最多检查的提交数
+     * @return 本批检查的提交数，小于 batchSize 表示一轮扫描已结束
+     */
+    int compressBatch(int batchSize);
+}
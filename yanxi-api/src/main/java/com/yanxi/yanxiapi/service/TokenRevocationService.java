@@ -0,0 +1,21 @@
+package com.yanxi.yanxiapi.service;
+
+/**
+ * token吊销服务
+ */
+public interface TokenRevocationService {
+
+    /**
+     * 吊销单个token（如退出登录）
+     * @param token JWT
+     * @param reason 吊销原因
+     */
+    void revokeToken(String token, String reason);
+
+    /**
+     * 判断token是否已被吊销，仅访问内存
+     * @param tokenHash token的SHA-256
+     * @return 是否已吊销
+     */
+    boolean isRevoked(String tokenHash);
+}
@@ -0,0 +1,54 @@
+package com.yanxi.yanxiapi.service;
+
+import com.yanxi.yanxiapi.entity.FileUpload;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 分片上传服务：创建会话 -> 按偏移量写入分片（可断点续传） -> 完成 -> 由作业接口认领
+ */
+public interface UploadService {
+
+    /**
+     * 创建上传会话
+     * @param userId 上传用户ID
+     * @param fileName 原始文件名
+     * @param totalSize 文件总大小（字节）
+     * @return 上传会话
+     */
+    FileUpload initUpload(Long userId, String fileName, long totalSize);
+
+    /**
+     * 查询上传进度，断线后客户端从 receivedSize 继续上传
+     * @throws IllegalArgumentException 会话不存在或不属于该用户
+     */
+    FileUpload getUpload(String uploadId, Long userId);
+
+    /**
+     * 在指定偏移量写入一个分片
+     * @param uploadId 上传ID
+     * @param userId 上传用户ID
+     * @param offset 分片起始位置，不能超过已接收的字节数
+     * @param checksum 分片内容的SHA-256（十六进制）
+     * @param body 分片内容
+     * @return 更新后的上传会话
+     * @throws IllegalArgumentException 分片超出文件大小或校验失败
+     * @throws IllegalStateException 偏移量不连续或会话已完成
+     */
+    FileUpload writeChunk(String uploadId, Long userId, long offset, String checksum, InputStream body)
+            throws IOException;
+
+    /**
+     * 全部分片接收后完成上传，文件移入上传目录；可重复调用，已完成时直接返回结果
+     * @throws IllegalStateException 尚未接收完整，或另一个完成请求正在处理
+     */
+    FileUpload completeUpload(String uploadId, Long userId) throws IOException;
+
+    /**
+     * 认领已完成的上传，需在写入引用该文件的记录的同一事务中调用，回滚后可重新认领
+     * @return 文件地址
+     * @throws IllegalArgumentException 上传不存在、未完成或不属于该用户
+     */
+    String consumeUpload(String uploadId, Long userId);
+}
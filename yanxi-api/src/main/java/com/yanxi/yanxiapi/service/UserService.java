@@ -6,6 +6,7 @@ import com.yanxi.yanxiapi.dto.UserRegisterDTO;
 import com.yanxi.yanxiapi.entity.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -53,4 +54,17 @@ public interface UserService extends IService<User>, UserDetailsService {
      * @return 用户对象，如果不存在返回null
      */
     User getByEmail(String email);
-} 
\ No newline at end of file
+
+    /**
+     * 批量获取用户，优先读缓存，未命中的部分一次 IN 查询加载
+     * @param ids 用户ID
+     * @return 用户ID到用户的映射，不存在的ID不包含在内
+     */
+    Map<Long, User> getUsersByIds(Collection<Long> ids);
+
+    /**
+     * 用户信息变更后清除缓存
+     * @param userId 用户ID
+     */
+    void evictUser(Long userId);
+}
\ No newline at end of file
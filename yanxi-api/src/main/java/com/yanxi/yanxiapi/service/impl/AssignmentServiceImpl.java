@@ -1,40 +1,74 @@
 package com.yanxi.yanxiapi.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yanxi.yanxiapi.dto.CursorPage;
+import com.yanxi.yanxiapi.dto.PageCursor;
+import com.yanxi.yanxiapi.dto.StoredFile;
 import com.yanxi.yanxiapi.entity.Assignment;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 import com.yanxi.yanxiapi.entity.AssignmentSubmission;
+import com.yanxi.yanxiapi.entity.AssignmentSubmissionHistory;
 import com.yanxi.yanxiapi.mapper.AssignmentMapper;
 import com.yanxi.yanxiapi.mapper.ClassStudentMapper;
+import com.yanxi.yanxiapi.mapper.AssignmentSubmissionHistoryMapper;
 import com.yanxi.yanxiapi.mapper.AssignmentSubmissionMapper;
 import com.yanxi.yanxiapi.service.AssignmentService;
+import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.service.SearchService;
+import com.yanxi.yanxiapi.service.UploadService;
 import com.yanxi.yanxiapi.service.UserService;
-import com.yanxi.yanxiapi.utils.FileUtils;
+import com.yanxi.yanxiapi.utils.ZipUtils;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.Map;
-import java.util.Objects;
+import java.util.zip.ZipOutputStream;
 
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class AssignmentServiceImpl extends ServiceImpl<AssignmentMapper, Assignment> implements AssignmentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentServiceImpl.class);
+
+    private static final int EXPORT_BATCH_SIZE = 200;
+
+    private static final Function<Assignment, PageCursor> ASSIGNMENT_CURSOR =
+            assignment -> PageCursor.of(assignment.getCreatedAt(), assignment.getId());
+
     private final ClassStudentMapper classStudentMapper;
     private final UserService userService;
     private final AssignmentSubmissionMapper assignmentSubmissionMapper;
+    private final AssignmentSubmissionHistoryMapper submissionHistoryMapper;
+    private final FileService fileService;
+    private final TransactionTemplate transactionTemplate;
+    private final UploadService uploadService;
+    private final SearchService searchService;
+
+    /**
+     * 每个学生每个作业保留的历史版本数，0表示不保留，覆盖后直接删除旧文件
+     */
+    @Value("${assignment.submission.history-limit:5}")
+    private int historyLimit;
 
     @Override
-    public List<Assignment> getAssignments(Long classId, String studentEmail, User teacher) {
+    public CursorPage<Assignment> getAssignments(Long classId, String studentEmail, UserPrincipal teacher,
+                                                 PageCursor cursor, int limit) {
         LambdaQueryWrapper<Assignment> queryWrapper = new LambdaQueryWrapper<>();
 
         // 只查询当前教师的作业
@@ -56,129 +90,125 @@ public class AssignmentServiceImpl extends ServiceImpl<AssignmentMapper, Assignm
                     queryWrapper.in(Assignment::getClassId, studentClassIds);
                 } else {
                     // 如果学生不在任何班级，返回空列表
-                    return Collections.emptyList();
+                    return CursorPage.of(Collections.emptyList(), limit, ASSIGNMENT_CURSOR);
                 }
             }
         }
 
+        // 键集分页：从上一页最后一条之后开始
+        if (cursor != null) {
+            LocalDateTime createdAt = cursor.toLocalDateTime();
+            queryWrapper.and(w -> w.lt(Assignment::getCreatedAt, createdAt)
+                    .or(o -> o.eq(Assignment::getCreatedAt, createdAt).lt(Assignment::getId, cursor.getId())));
+        }
+
         // 按创建时间倒序排序
-        queryWrapper.orderByDesc(Assignment::getCreatedAt);
+        queryWrapper.orderByDesc(Assignment::getCreatedAt).orderByDesc(Assignment::getId);
 
-        return list(queryWrapper);
+        // 多查一条用于判断是否还有下一页，不做 COUNT
+        List<Assignment> rows = page(new Page<>(1, limit + 1, false), queryWrapper).getRecords();
+        return CursorPage.of(rows, limit, ASSIGNMENT_CURSOR);
     }
 
     @Override
-    public Assignment createAssignment(Long classId, String title, String description, MultipartFile file, LocalDateTime dueDate, User teacher) {
+    public Assignment createAssignment(Long classId, String title, String description, MultipartFile file, LocalDateTime dueDate, UserPrincipal teacher) {
+        // 1. 在事务外保存文件并获取文件路径
+        String fileUrl;
         try {
-            // 保存文件并获取文件路径
-            String fileUrl = FileUtils.saveFile(file);
-
-            Assignment assignment = new Assignment();
-            assignment.setClassId(classId);
-            assignment.setTitle(title);
-            assignment.setDescription(description);
-            assignment.setFileUrl(fileUrl);
-            assignment.setDueDate(dueDate);
-            assignment.setTeacherId(teacher.getId());
-            assignment.setCreatedAt(LocalDateTime.now());
-            assignment.setUpdatedAt(LocalDateTime.now());
-
-            save(assignment);
-            return assignment;
+            fileUrl = fileService.storeFile(file);
         } catch (IOException e) {
             throw new RuntimeException("文件上传失败: " + e.getMessage());
         }
+
+        // 2. 写入作业失败时释放已保存文件的引用，否则引用计数不会归零、文件无法回收
+        try {
+            return transactionTemplate.execute(status -> saveAssignment(classId, title, description, fileUrl,
+                    dueDate, teacher));
+        } catch (RuntimeException e) {
+            fileService.releaseFiles(Collections.singletonList(fileUrl));
+            throw e;
+        }
+    }
+
+    @Override
+    public Assignment createAssignmentFromUpload(Long classId, String title, String description, String uploadId, LocalDateTime dueDate, UserPrincipal teacher) {
+        // 认领上传与写入作业在同一事务中，失败回滚后上传仍可再次使用
+        return transactionTemplate.execute(status -> saveAssignment(classId, title, description,
+                uploadService.consumeUpload(uploadId, teacher.getId()), dueDate, teacher));
+    }
+
+    private Assignment saveAssignment(Long classId, String title, String description, String fileUrl, LocalDateTime dueDate, UserPrincipal teacher) {
+        Assignment assignment = new Assignment();
+        assignment.setClassId(classId);
+        assignment.setTitle(title);
+        assignment.setDescription(description);
+        assignment.setFileUrl(fileUrl);
+        assignment.setDueDate(dueDate);
+        assignment.setTeacherId(teacher.getId());
+        assignment.setCreatedAt(LocalDateTime.now());
+        assignment.setUpdatedAt(LocalDateTime.now());
+
+        save(assignment);
+        searchService.indexAssignment(assignment);
+        return assignment;
     }
 
     @Override
-    public List<User> getAssignmentStudents(Long assignmentId) {
+    public IPage<User> getAssignmentStudents(Long assignmentId, long page, long size, String sort) {
         // 1. 获取作业信息
         Assignment assignment = getById(assignmentId);
         if (assignment == null) {
             throw new RuntimeException("作业不存在");
         }
 
-        // 2. 获取该作业所属班级的所有学生ID
-        List<Long> studentIds = classStudentMapper.selectStudentIdsByClassId(assignment.getClassId());
-        if (studentIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // 3. 获取所有学生的提交记录
-        List<AssignmentSubmission> submissions = assignmentSubmissionMapper.selectByAssignmentId(assignmentId);
-        Map<Long, AssignmentSubmission> submissionMap = submissions.stream()
-                .collect(Collectors.toMap(AssignmentSubmission::getStudentId, submission -> submission));
-
-        // 4. 获取学生详细信息并添加提交信息
-        return studentIds.stream()
-                .map(studentId -> {
-                    User student = userService.getById(studentId);
-                    if (student != null) {
-                        AssignmentSubmission submission = submissionMap.get(studentId);
-                        if (submission != null) {
-                            student.setSubmitted(true);
-                            student.setSubmittedAt(submission.getSubmittedAt());
-                            student.setSubmissionId(submission.getId());
-                            student.setSubmissionFileUrl(submission.getFileUrl());
-                        } else {
-                            student.setSubmitted(false);
-                        }
-                    }
-                    return student;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        // 2. 一次关联查询班级学生及其提交记录
+        return assignmentSubmissionMapper.selectAssignmentRoster(
+                new Page<>(page, size), assignmentId, assignment.getClassId(), sort);
     }
 
     @Override
-    public List<Assignment> getStudentAssignments(Boolean submitted, User student) {
-        // 1. 获取学生所在的所有班级ID
-        List<Long> studentClassIds = classStudentMapper.selectClassIdsByStudentId(student.getId());
-        if (studentClassIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // 2. 构建查询条件
-        LambdaQueryWrapper<Assignment> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.in(Assignment::getClassId, studentClassIds);
+    public CursorPage<Assignment> getStudentAssignments(Boolean submitted, UserPrincipal student,
+                                                        PageCursor cursor, int limit) {
+        // 提交状态、过滤和排序都由数据库完成，按 (created_at, id) 键集分页
+        List<Assignment> rows = baseMapper.selectStudentAssignments(student.getId(), submitted,
+                cursor != null ? cursor.toLocalDateTime() : null,
+                cursor != null ? cursor.getId() : null,
+                limit + 1);
+        return CursorPage.of(rows, limit, ASSIGNMENT_CURSOR);
+    }
 
-        // 3. 获取所有符合条件的作业
-        List<Assignment> assignments = list(queryWrapper);
-        if (assignments.isEmpty()) {
-            return Collections.emptyList();
+    @Override
+    public Assignment submitAssignment(Long assignmentId, MultipartFile file, UserPrincipal student) {
+        // 1. 在事务外保存文件，慢速上传期间不占用数据库连接
+        String fileUrl;
+        try {
+            fileUrl = fileService.storeFile(file);
+        } catch (IOException e) {
+            throw new RuntimeException("文件上传失败: " + e.getMessage());
         }
 
-        // 4. 获取所有作业ID
-        List<Long> assignmentIds = assignments.stream()
-                .map(Assignment::getId)
-                .collect(Collectors.toList());
-
-        // 5. 查询学生已提交的作业ID
-        List<Long> submittedAssignmentIds = baseMapper.selectSubmittedAssignmentIds(student.getId());
-
-        // 6. 为每个作业添加 submitted 字段
-        assignments.forEach(assignment -> {
-            assignment.setSubmitted(submittedAssignmentIds.contains(assignment.getId()));
-        });
-
-        // 7. 如果指定了提交状态，进行过滤
-        if (submitted != null) {
-            assignments = assignments.stream()
-                    .filter(assignment -> assignment.getSubmitted().equals(submitted))
-                    .collect(Collectors.toList());
+        // 2. 短事务中只做校验和写入，失败时删除已保存的文件
+        try {
+            return transactionTemplate.execute(status -> submitStoredFile(assignmentId, fileUrl, student));
+        } catch (RuntimeException e) {
+            fileService.releaseFiles(Collections.singletonList(fileUrl));
+            throw e;
         }
-
-        // 8. 按创建时间倒序排序
-        assignments.sort((a1, a2) -> a2.getCreatedAt().compareTo(a1.getCreatedAt()));
-
-        return assignments;
     }
 
     @Override
-    @Transactional
-    public Assignment submitAssignment(Long assignmentId, MultipartFile file, User student) {
-        // 1. 获取作业信息
-        Assignment assignment = getById(assignmentId);
+    public Assignment submitUploadedAssignment(Long assignmentId, String uploadId, UserPrincipal student) {
+        // 文件已由分片上传写好，认领上传与写入提交记录在同一事务中
+        return transactionTemplate.execute(status -> submitStoredFile(assignmentId,
+                uploadService.consumeUpload(uploadId, student.getId()), student));
+    }
+
+    /**
+     * 为已保存的文件写入提交记录，需在事务中调用
+     */
+    private Assignment submitStoredFile(Long assignmentId, String fileUrl, UserPrincipal student) {
+        // 1. 获取并锁定作业，同一作业的提交依次执行
+        Assignment assignment = baseMapper.selectByIdForUpdate(assignmentId);
         if (assignment == null) {
             throw new RuntimeException("作业不存在");
         }
@@ -194,23 +224,93 @@ public class AssignmentServiceImpl extends ServiceImpl<AssignmentMapper, Assignm
 //            throw new RuntimeException("作业已过截止时间");
 //        }
 
-        try {
-            // 4. 保存文件
-            String fileUrl = FileUtils.saveFile(file);
+        AssignmentSubmission submission = new AssignmentSubmission();
+        submission.setAssignmentId(assignmentId);
+        submission.setStudentId(student.getId());
+        submission.setFileUrl(fileUrl);
+        submission.setSubmittedAt(LocalDateTime.now());
 
-            // 5. 创建或更新作业提交记录
-            AssignmentSubmission submission = new AssignmentSubmission();
-            submission.setAssignmentId(assignmentId);
-            submission.setStudentId(student.getId());
-            submission.setFileUrl(fileUrl);
-            submission.setSubmittedAt(LocalDateTime.now());
+        // 4. 首次提交直接插入。不对不存在的行加锁读：那会加间隙锁，并发的首次提交插入时互相等待而死锁。
+        //    快照可能早于作业锁（如先认领了分片上传），因此用 INSERT IGNORE 兜底，已有记录时转为覆盖
+        if (assignmentSubmissionMapper.selectByAssignmentAndStudent(assignmentId, student.getId()) == null
+                && baseMapper.insertSubmissionIgnore(submission) == 1) {
+            return assignment;
+        }
 
-            // 保存提交记录
-            baseMapper.insertSubmission(submission);
+        // 5. 锁定已有的提交记录并覆盖，每个学生每个作业只保留一行
+        AssignmentSubmission previous = assignmentSubmissionMapper.selectForUpdate(assignmentId, student.getId());
+        if (previous == null) {
+            // 记录不存在却插入失败：外键不满足（学生或作业已被删除）
+            throw new RuntimeException("作业不存在");
+        }
+        baseMapper.upsertSubmission(submission);
 
-            return assignment;
-        } catch (IOException e) {
-            throw new RuntimeException("文件上传失败: " + e.getMessage());
+        // 6. 旧文件转入历史版本，超出上限或未开启历史时在提交后异步删除
+        fileService.releaseFiles(archiveSubmission(previous));
+
+        return assignment;
+    }
+
+    /**
+     * 将被覆盖的提交记录写入历史表，并裁剪到 historyLimit 条
+     *
+     * @return 不再被引用、需要删除的文件
+     */
+    private List<String> archiveSubmission(AssignmentSubmission previous) {
+        if (historyLimit <= 0) {
+            return Collections.singletonList(previous.getFileUrl());
         }
+
+        AssignmentSubmissionHistory history = new AssignmentSubmissionHistory();
+        history.setAssignmentId(previous.getAssignmentId());
+        history.setStudentId(previous.getStudentId());
+        history.setFileUrl(previous.getFileUrl());
+        history.setSubmittedAt(previous.getSubmittedAt());
+        history.setReplacedAt(LocalDateTime.now());
+        submissionHistoryMapper.insert(history);
+
+        List<AssignmentSubmissionHistory> versions = submissionHistoryMapper.selectByAssignmentAndStudent(
+                previous.getAssignmentId(), previous.getStudentId());
+        if (versions.size() <= historyLimit) {
+            return Collections.emptyList();
+        }
+        List<AssignmentSubmissionHistory> expired = versions.subList(historyLimit, versions.size());
+        submissionHistoryMapper.deleteBatchIds(expired.stream()
+                .map(AssignmentSubmissionHistory::getId)
+                .collect(Collectors.toList()));
+        return expired.stream()
+                .map(AssignmentSubmissionHistory::getFileUrl)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void exportSubmissions(Assignment assignment, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        long afterStudentId = 0;
+        List<User> batch;
+        do {
+            // 按学生ID分批查询，每批查询完即释放连接，不在写出过程中占用
+            batch = assignmentSubmissionMapper.selectSubmissionFiles(assignment.getId(), afterStudentId, EXPORT_BATCH_SIZE);
+            for (User student : batch) {
+                afterStudentId = student.getId();
+                StoredFile file;
+                try {
+                    file = fileService.getStoredFile(student.getSubmissionFileUrl());
+                } catch (IOException e) {
+                    logger.warn("Skipping missing submission file {}: {}", student.getSubmissionFileUrl(), e.getMessage());
+                    continue;
+                }
+                // 每个学生一个目录：姓名_学号ID/姓名_学号ID.扩展名
+                String name = ZipUtils.sanitize((student.getRealName() != null ? student.getRealName() : student.getUsername())
+                        + "_" + student.getId());
+                ZipUtils.writeEntry(zip, name + "/" + name + extensionOf(file.getFileName()), file);
+            }
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+        zip.finish();
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        return dot >= 0 ? fileName.substring(dot) : "";
     }
-} 
\ No newline at end of file
+}
@@ -1,57 +1,165 @@
 package com.yanxi.yanxiapi.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yanxi.yanxiapi.dto.BulkImportResult;
+import com.yanxi.yanxiapi.dto.BulkImportRow;
+import com.yanxi.yanxiapi.dto.CursorPage;
+import com.yanxi.yanxiapi.dto.PageCursor;
 import com.yanxi.yanxiapi.entity.ClassEntity;
 import com.yanxi.yanxiapi.entity.ClassStudent;
 import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.security.UserPrincipal;
 import com.yanxi.yanxiapi.mapper.ClassMapper;
 import com.yanxi.yanxiapi.mapper.ClassStudentMapper;
 import com.yanxi.yanxiapi.mapper.UserMapper;
 import com.yanxi.yanxiapi.service.ClassService;
+import com.yanxi.yanxiapi.service.SearchService;
+import com.yanxi.yanxiapi.utils.ClassCodeGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ClassServiceImpl extends ServiceImpl<ClassMapper, ClassEntity> implements ClassService {
     
+    private static final Logger logger = LoggerFactory.getLogger(ClassServiceImpl.class);
+
+    /**
+     * 代码冲突（节点ID配置重复或密钥变更）时的最大尝试次数
+     */
+    private static final int MAX_CODE_ATTEMPTS = 5;
+
+    /**
+     * 批量导入时每条 IN 查询和多行插入包含的行数
+     */
+    private static final int BULK_BATCH_SIZE = 500;
+
+    private static final String STUDENT_ROLE = "student";
+
     private final ClassMapper classMapper;
     private final ClassStudentMapper classStudentMapper;
     private final UserMapper userMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SearchService searchService;
+
+    private final ClassCodeGenerator classCodeGenerator;
+
+    private volatile boolean codeSequenceRecovered;
 
-    public ClassServiceImpl(ClassMapper classMapper, ClassStudentMapper classStudentMapper, UserMapper userMapper) {
+    /**
+     * 班级代码到班级的缓存，开学集中加入时同一代码只查一次库；TTL限制多节点下删除班级后的不一致时间
+     */
+    private final Cache<String, ClassEntity> classesByCode;
+
+    @Value("${class.student-count.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    @Value("${class.bulk-import.max-rows:10000}")
+    private int bulkImportMaxRows;
+
+    public ClassServiceImpl(ClassMapper classMapper, ClassStudentMapper classStudentMapper, UserMapper userMapper,
+                            TransactionTemplate transactionTemplate, SearchService searchService,
+                            ClassCodeGenerator classCodeGenerator,
+                            MeterRegistry meterRegistry,
+                            @Value("${class.code-cache.max-size:10000}") long codeCacheMaxSize,
+                            @Value("${class.code-cache.ttl-seconds:600}") long codeCacheTtlSeconds) {
         this.classMapper = classMapper;
         this.classStudentMapper = classStudentMapper;
         this.userMapper = userMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.searchService = searchService;
+        this.classCodeGenerator = classCodeGenerator;
+        this.classesByCode = Caffeine.newBuilder()
+                .maximumSize(codeCacheMaxSize)
+                .expireAfterWrite(codeCacheTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, classesByCode, "class.code");
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ClassEntity> getClassesByTeacher(User teacher) {
+    public List<ClassEntity> getClassesByTeacher(UserPrincipal teacher) {
         return classMapper.findByTeacherId(teacher.getId());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ClassStudent> getClassesByStudent(User student) {
-        return classStudentMapper.findByStudentId(student.getId());
+    public CursorPage<ClassEntity> getClassesByTeacher(UserPrincipal teacher, PageCursor cursor, int limit) {
+        LambdaQueryWrapper<ClassEntity> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ClassEntity::getTeacherId, teacher.getId());
+        if (cursor != null) {
+            Date createdAt = cursor.toDate();
+            queryWrapper.and(w -> w.lt(ClassEntity::getCreatedAt, createdAt)
+                    .or(o -> o.eq(ClassEntity::getCreatedAt, createdAt).lt(ClassEntity::getId, cursor.getId())));
+        }
+        queryWrapper.orderByDesc(ClassEntity::getCreatedAt).orderByDesc(ClassEntity::getId);
+
+        // 多查一条用于判断是否还有下一页，不做 COUNT
+        List<ClassEntity> rows = page(new Page<>(1, limit + 1, false), queryWrapper).getRecords();
+        return CursorPage.of(rows, limit, c -> PageCursor.of(c.getCreatedAt(), c.getId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ClassEntity> getClassesByStudent(UserPrincipal student, PageCursor cursor, int limit) {
+        // 游标取自 class_student 记录，关联时去掉已删除的班级不影响翻页
+        List<ClassEntity> rows = classMapper.selectByStudentId(student.getId(),
+                cursor != null ? cursor.toDate() : null,
+                cursor != null ? cursor.getId() : null,
+                limit + 1);
+        return CursorPage.of(rows, limit, c -> PageCursor.of(c.getJoinedAt(), c.getMembershipId()));
     }
 
     @Override
     @Transactional
-    public ClassEntity createClass(String name, User teacher) {
+    public ClassEntity createClass(String name, UserPrincipal teacher) {
         ClassEntity classEntity = new ClassEntity();
         classEntity.setName(name);
         classEntity.setTeacherId(teacher.getId());
-        classEntity.setCode(generateUniqueCode());
-        save(classEntity);
+        classEntity.setStudentCount(0);
+        for (int attempt = 1; ; attempt++) {
+            classEntity.setCode(nextClassCode());
+            try {
+                save(classEntity);
+                break;
+            } catch (DuplicateKeyException e) {
+                // 正常情况下不会发生，由 uk_class_code 兜底
+                if (attempt >= MAX_CODE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Class code {} already exists, check class.code.node-id", classEntity.getCode());
+            }
+        }
+        searchService.indexClass(classEntity);
         return classEntity;
     }
 
@@ -59,35 +167,196 @@ public class ClassServiceImpl extends ServiceImpl<ClassMapper, ClassEntity> impl
     @Transactional
     public void deleteClass(Long classId) {
         removeById(classId);
+        evictClass(classId);
+        searchService.removeClass(classId);
     }
 
     @Override
     @Transactional
-    public ClassStudent addStudentToClass(ClassEntity classEntity, User student) {
-        if (classStudentMapper.findByClassIdAndStudentId(classEntity.getId(), student.getId()) != null) {
-            throw new IllegalStateException("Student is already in this class");
+    public ClassStudent addStudentToClass(ClassEntity classEntity, UserPrincipal student) {
+        Long classId = classEntity.getId();
+        // 先更新班级行（加排他锁）再写 class_student，与对账任务的加锁顺序一致。
+        // 若先插入，外键检查会对班级行加共享锁，并发加入时双方都持有共享锁、都等待排他锁而死锁
+        if (classMapper.incrementStudentCount(classId, 1) == 0) {
+            // 班级已在其他节点被删除，缓存尚未过期
+            evictClass(classId);
+            throw new IllegalArgumentException("Class not found");
         }
-
         ClassStudent classStudent = new ClassStudent();
-        classStudent.setClassId(classEntity.getId());
+        classStudent.setClassId(classId);
         classStudent.setStudentId(student.getId());
-        classStudentMapper.insert(classStudent);
+        // 由唯一键判断重复，同一学生的并发加入只有一个成功
+        if (classStudentMapper.insertIgnore(classStudent) == 0) {
+            // 撤销预先加的人数；调用方若在外层事务中捕获异常也不会多计
+            classMapper.incrementStudentCount(classId, -1);
+            throw new IllegalStateException("Student is already in this class");
+        }
+        classEntity.setStudentCount(classMapper.selectStudentCount(classId));
+        searchService.addClassStudent(classId, student.getId());
         return classStudent;
     }
 
     @Override
     @Transactional
-    public void removeStudentFromClass(ClassEntity classEntity, User student) {
-        ClassStudent classStudent = classStudentMapper.findByClassIdAndStudentId(classEntity.getId(), student.getId());
-        if (classStudent != null) {
-            classStudentMapper.deleteById(classStudent.getId());
+    public void removeStudentFromClass(ClassEntity classEntity, UserPrincipal student) {
+        Long classId = classEntity.getId();
+        ClassStudent classStudent = classStudentMapper.findByClassIdAndStudentId(classId, student.getId());
+        if (classStudent == null) {
+            return;
+        }
+        // 与加入相同，先锁班级行再删除成员；只有真正删除了记录才保留减一，并发的重复移出不会减多
+        classMapper.incrementStudentCount(classId, -1);
+        if (classStudentMapper.deleteById(classStudent.getId()) > 0) {
+            searchService.removeClassStudent(classId, student.getId());
+        } else {
+            classMapper.incrementStudentCount(classId, 1);
+        }
+    }
+
+    @Override
+    public BulkImportResult importStudents(ClassEntity classEntity, List<String> identifiers) {
+        if (identifiers.size() > bulkImportMaxRows) {
+            throw new IllegalArgumentException("At most " + bulkImportMaxRows + " rows can be imported at once");
+        }
+        Long classId = classEntity.getId();
+        List<BulkImportRow> rows = new ArrayList<>(identifiers.size());
+        // 用户名和邮箱在库中不区分大小写，名单内按小写去重
+        Map<String, BulkImportRow> rowsByKey = new LinkedHashMap<>();
+        List<String> usernames = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < identifiers.size(); i++) {
+            String identifier = identifiers.get(i) == null ? "" : identifiers.get(i).trim();
+            BulkImportRow row = new BulkImportRow(i + 1, identifier);
+            rows.add(row);
+            if (identifier.isEmpty()) {
+                row.setStatus(BulkImportRow.INVALID);
+            } else if (rowsByKey.putIfAbsent(identifier.toLowerCase(Locale.ROOT), row) != null) {
+                row.setStatus(BulkImportRow.DUPLICATE);
+            } else if (identifier.indexOf('@') >= 0) {
+                emails.add(identifier);
+            } else {
+                usernames.add(identifier);
+            }
+        }
+
+        Map<String, User> users = new HashMap<>();
+        for (int from = 0; from < usernames.size(); from += BULK_BATCH_SIZE) {
+            List<String> chunk = usernames.subList(from, Math.min(from + BULK_BATCH_SIZE, usernames.size()));
+            for (User user : userMapper.selectByUsernames(chunk)) {
+                users.put(user.getUsername().toLowerCase(Locale.ROOT), user);
+            }
+        }
+        for (int from = 0; from < emails.size(); from += BULK_BATCH_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + BULK_BATCH_SIZE, emails.size()));
+            for (User user : userMapper.selectByEmails(chunk)) {
+                users.put(user.getEmail().toLowerCase(Locale.ROOT), user);
+            }
+        }
+
+        // 同一学生可能同时以用户名和邮箱出现
+        Map<Long, BulkImportRow> rowsByStudent = new LinkedHashMap<>();
+        for (Map.Entry<String, BulkImportRow> entry : rowsByKey.entrySet()) {
+            User user = users.get(entry.getKey());
+            BulkImportRow row = entry.getValue();
+            if (user == null) {
+                row.setStatus(BulkImportRow.NOT_FOUND);
+                continue;
+            }
+            if (!STUDENT_ROLE.equalsIgnoreCase(user.getUserType())) {
+                row.setStatus(BulkImportRow.NOT_A_STUDENT);
+                continue;
+            }
+            row.setStudentId(user.getId());
+            if (rowsByStudent.putIfAbsent(user.getId(), row) != null) {
+                row.setStatus(BulkImportRow.DUPLICATE);
+            }
+        }
+
+        // 查找用户不占用事务；写入在短事务中进行
+        Integer studentCount = transactionTemplate.execute(status -> insertMembers(classId, rowsByStudent));
+        classEntity.setStudentCount(studentCount);
+        return BulkImportResult.of(rows, studentCount);
+    }
+
+    /**
+     * 分批写入班级成员并更新人数，需在事务中调用
+     *
+     * @return 写入后的学生人数
+     */
+    private Integer insertMembers(Long classId, Map<Long, BulkImportRow> rowsByStudent) {
+        // 与加入、移出相同，先锁班级行再写 class_student；该语句是事务中第一条，
+        // 之后的一致性读能看到所有先于本次导入提交的成员变更
+        if (classMapper.lockById(classId) == null) {
+            evictClass(classId);
+            throw new IllegalArgumentException("Class not found");
+        }
+        List<Long> studentIds = new ArrayList<>(rowsByStudent.keySet());
+        List<Long> added = new ArrayList<>();
+        for (int from = 0; from < studentIds.size(); from += BULK_BATCH_SIZE) {
+            List<Long> chunk = studentIds.subList(from, Math.min(from + BULK_BATCH_SIZE, studentIds.size()));
+            Set<Long> existing = new HashSet<>(classStudentMapper.selectStudentIdsInClass(classId, chunk));
+            List<Long> toInsert = new ArrayList<>(chunk.size());
+            for (Long studentId : chunk) {
+                if (existing.contains(studentId)) {
+                    rowsByStudent.get(studentId).setStatus(BulkImportRow.ALREADY_IN_CLASS);
+                } else {
+                    toInsert.add(studentId);
+                }
+            }
+            if (toInsert.isEmpty()) {
+                continue;
+            }
+            int inserted = classStudentMapper.insertIgnoreBatch(classId, toInsert);
+            Set<Long> insertedIds;
+            if (inserted == toInsert.size()) {
+                insertedIds = new HashSet<>(toInsert);
+            } else if (inserted == 0) {
+                insertedIds = Collections.emptySet();
+            } else {
+                // 部分被唯一键忽略：本条语句生成的自增ID从 LAST_INSERT_ID() 开始，且班级行已锁定，
+                // 不会有其他事务同时写入该班级，ID不小于它的成员即为本批插入
+                insertedIds = new HashSet<>(classStudentMapper.selectStudentIdsInsertedSince(
+                        classId, classStudentMapper.selectLastInsertId(), toInsert));
+            }
+            for (Long studentId : toInsert) {
+                if (insertedIds.contains(studentId)) {
+                    rowsByStudent.get(studentId).setStatus(BulkImportRow.ADDED);
+                    added.add(studentId);
+                } else {
+                    rowsByStudent.get(studentId).setStatus(BulkImportRow.ALREADY_IN_CLASS);
+                }
+            }
+            if (inserted > 0) {
+                classMapper.incrementStudentCount(classId, inserted);
+            }
         }
+        if (!added.isEmpty()) {
+            searchService.addClassStudents(classId, added);
+        }
+        return classMapper.selectStudentCount(classId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<ClassEntity> getClassByCode(String code) {
-        return Optional.ofNullable(classMapper.findByCode(code));
+        if (code == null || code.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        String key = code.trim().toUpperCase(Locale.ROOT);
+        // 同一代码的并发未命中只查一次库；不存在的代码不缓存，避免新建班级后短时间内查不到
+        ClassEntity cached = classesByCode.get(key, classMapper::findByCode);
+        // 返回副本，调用方修改（如学生人数）不影响缓存
+        return cached == null ? Optional.empty() : Optional.of(copyOf(cached));
+    }
+
+    private void evictClass(Long classId) {
+        classesByCode.asMap().values().removeIf(c -> c.getId().equals(classId));
+    }
+
+    private static ClassEntity copyOf(ClassEntity classEntity) {
+        ClassEntity copy = new ClassEntity();
+        BeanUtils.copyProperties(classEntity, copy);
+        return copy;
     }
 
     @Override
@@ -99,65 +368,100 @@ public class ClassServiceImpl extends ServiceImpl<ClassMapper, ClassEntity> impl
     @Override
     @Transactional(readOnly = true)
     public Integer getStudentCount(Long classId) {
-        return classStudentMapper.findByClassId(classId).size();
+        ClassEntity classEntity = getById(classId);
+        return classEntity != null ? classEntity.getStudentCount() : 0;
+    }
+
+    /**
+     * 定期核对学生人数，修复异常中断等原因造成的偏差
+     */
+    @Scheduled(initialDelayString = "${class.student-count.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${class.student-count.reconcile-interval-ms:3600000}")
+    public void reconcileStudentCountsJob() {
+        try {
+            int repaired = reconcileStudentCounts();
+            if (repaired > 0) {
+                logger.warn("Repaired student_count of {} classes", repaired);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to reconcile class student counts: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int reconcileStudentCounts() {
+        int repaired = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            // 每批在一个短事务中：先锁住班级行，再统计，统计时能看到所有已提交的加入/移出
+            Long[] result = transactionTemplate.execute(status -> {
+                List<Long> ids = classMapper.lockIdRange(from, reconcileBatchSize);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                Long toId = ids.get(ids.size() - 1);
+                return new Long[]{toId, (long) classMapper.reconcileStudentCounts(from, toId)};
+            });
+            if (result == null) {
+                return repaired;
+            }
+            afterId = result[0];
+            repaired += result[1].intValue();
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<User> getTeacherAllStudents(User teacher, String email, Long classId) {
-        // 获取教师的所有班级
-        List<ClassEntity> classes = getClassesByTeacher(teacher);
-        
-        // 使用 Set 存储学生，自动去重
-        Set<User> uniqueStudents = new HashSet<>();
-        
-        // 如果指定了班级ID，只获取该班级的学生
+    public CursorPage<User> getTeacherAllStudents(UserPrincipal teacher, String email, Long classId,
+                                                  PageCursor cursor, int limit) {
+        // 如果指定了班级ID，验证班级是否属于该教师
         if (classId != null) {
-            // 验证班级是否属于该教师
-            boolean isTeacherClass = classes.stream()
-                    .anyMatch(c -> c.getId().equals(classId));
-            if (!isTeacherClass) {
+            ClassEntity classEntity = getById(classId);
+            if (classEntity == null || !classEntity.getTeacherId().equals(teacher.getId())) {
                 throw new IllegalArgumentException("Class not found or not authorized");
             }
-            
-            List<ClassStudent> classStudents = classStudentMapper.findByClassId(classId);
-            for (ClassStudent classStudent : classStudents) {
-                User student = userMapper.selectById(classStudent.getStudentId());
-                if (student != null) {
-                    uniqueStudents.add(student);
-                }
-            }
-        } else {
-            // 获取所有班级的学生
-            for (ClassEntity classEntity : classes) {
-                List<ClassStudent> classStudents = classStudentMapper.findByClassId(classEntity.getId());
-                for (ClassStudent classStudent : classStudents) {
-                    User student = userMapper.selectById(classStudent.getStudentId());
-                    if (student != null) {
-                        uniqueStudents.add(student);
-                    }
-                }
-            }
         }
-        
-        // 转换为 List
-        List<User> allStudents = new ArrayList<>(uniqueStudents);
-        
-        // 如果提供了邮箱，进行过滤
-        if (email != null && !email.trim().isEmpty()) {
-            return allStudents.stream()
-                    .filter(student -> student.getEmail().toLowerCase().contains(email.toLowerCase()))
-                    .collect(Collectors.toList());
+        String emailPrefix = email != null && !email.trim().isEmpty() ? escapeLike(email.trim()) : null;
+
+        List<User> rows = classStudentMapper.selectTeacherStudents(teacher.getId(), classId, emailPrefix,
+                cursor != null ? cursor.toDate() : null,
+                cursor != null ? cursor.getId() : null,
+                limit + 1);
+        return CursorPage.of(rows, limit, u -> PageCursor.of(u.getCreatedAt(), u.getId()));
+    }
+
+    /**
+     * 转义 LIKE 通配符，输入按字面匹配
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private String nextClassCode() {
+        if (!codeSequenceRecovered) {
+            recoverCodeSequence();
         }
-        
-        return allStudents;
+        return classCodeGenerator.next();
     }
 
-    private String generateUniqueCode() {
-        String code;
-        do {
-            code = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        } while (classMapper.findByCode(code) != null);
-        return code;
+    /**
+     * 首次建班时扫描一次已有代码，跳过本节点重启前已发出的序号，之后生成代码不再查库
+     */
+    private synchronized void recoverCodeSequence() {
+        if (codeSequenceRecovered) {
+            return;
+        }
+        try (Cursor<String> codes = classMapper.streamCodes()) {
+            for (String code : codes) {
+                long seq = classCodeGenerator.sequenceOf(code);
+                if (seq >= 0) {
+                    classCodeGenerator.advancePast(seq);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        codeSequenceRecovered = true;
     }
 } 
\ No newline at end of file
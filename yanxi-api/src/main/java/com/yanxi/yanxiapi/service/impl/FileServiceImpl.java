@@ -1,30 +1,118 @@
 package com.yanxi.yanxiapi.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yanxi.yanxiapi.dto.StoredFile;
+import com.yanxi.yanxiapi.entity.FileBlob;
+import com.yanxi.yanxiapi.mapper.FileBlobMapper;
 import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.storage.GzipStorageBackend;
+import com.yanxi.yanxiapi.storage.LocalStorageBackend;
+import com.yanxi.yanxiapi.storage.StorageBackend;
+import com.yanxi.yanxiapi.storage.StorageObject;
+import com.yanxi.yanxiapi.utils.HashUtils;
+import com.yanxi.yanxiapi.utils.ZipUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.time.LocalDateTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * 内容寻址的文件存储
+ * 写入时同时计算SHA-256，内容以 ab/cd/{sha256} 为键存入存储后端（本地磁盘或对象存储），相同内容只存一份，
+ * 单个目录内的文件数保持在可控范围；早期平铺在本地 blobs/ 下的文件仍可读取，由迁移任务移入存储后端。
+ * file_blob 表记录引用数，
+ * 引用数的增减与文件的放置/删除都在持有该行锁的短事务中完成。
+ * 文件地址形如 blobs/{sha256}.ext，扩展名只用于下载时的文件名；uploads/ 开头的旧地址仍从本地磁盘读取。
+ * 长时间未读取的内容可压缩为 {键}.gz 移入冷存储，地址不变，读取时边读边解压。
+ */
 @Service
-public class FileServiceImpl implements FileService {
+public class FileServiceImpl implements FileService, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
+
+    private static final String BLOB_URL_PREFIX = "blobs/";
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern BLOB_URL_PATTERN = Pattern.compile("blobs/([0-9a-f]{64})(\\.[^/\\\\]*)?");
+
+    private static final String COMPRESSION_GZIP = "gzip";
+    private static final String COMPRESSION_NONE = "none";
 
     private final Path fileStorageLocation;
+    private final Path blobDir;
+    private final Path tmpDir;
+    private final StorageBackend storageBackend;
+    private final GzipStorageBackend coldStorage;
+    // 平铺的旧内容文件与去重之前的旧文件只在本地磁盘上
+    private final StorageBackend flatBlobStorage;
+    private final StorageBackend legacyStorage;
+    private final StorageBackend legacyAssignmentStorage;
+    private final FileBlobMapper fileBlobMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // 释放引用、删除文件不影响请求结果，放到单独的线程中执行
+    private final ExecutorService cleanupExecutor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("file-cleanup-"));
+
+    // 最近已记录过读取时间的内容，避免每次下载都写数据库
+    private final Cache<String, Boolean> recentlyAccessed = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
 
-    public FileServiceImpl(@Value("${file.upload-dir:./uploads}") String uploadDir) {
+    @Value("${storage.tiering.min-saving-percent:10}")
+    private int minSavingPercent;
+
+    public FileServiceImpl(@Value("${file.upload-dir:./uploads}") String uploadDir,
+                           StorageBackend storageBackend,
+                           FileBlobMapper fileBlobMapper,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry) {
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.blobDir = this.fileStorageLocation.resolve("blobs");
+        this.tmpDir = this.fileStorageLocation.resolve("tmp");
+        this.storageBackend = storageBackend;
+        this.coldStorage = new GzipStorageBackend(storageBackend, this.tmpDir,
+                Timer.builder("storage.cold.read.open")
+                        .description("Time to open and inflate a cold file up to the requested offset")
+                        .register(meterRegistry));
+        this.flatBlobStorage = new LocalStorageBackend(this.blobDir);
+        // uploads/ 开头的旧地址是相对工作目录的路径
+        this.legacyStorage = new LocalStorageBackend(Paths.get(""));
+        this.legacyAssignmentStorage = new LocalStorageBackend(this.fileStorageLocation.resolve("assignments"));
+        this.fileBlobMapper = fileBlobMapper;
+        this.transactionTemplate = transactionTemplate;
         try {
-            Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tmpDir);
         } catch (IOException ex) {
             throw new RuntimeException("无法创建文件上传目录", ex);
         }
@@ -32,49 +120,319 @@ public class FileServiceImpl implements FileService {
 
     @Override
     public String storeFile(MultipartFile file) throws IOException {
-        // 生成唯一文件名
-        String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-        String fileName = UUID.randomUUID().toString() + fileExtension;
+        String originalFileName = StringUtils.cleanPath(file.getOriginalFilename() != null ? file.getOriginalFilename() : "");
 
-        // 检查文件名是否包含非法字符
-        if (fileName.contains("..")) {
-            throw new IOException("文件名包含非法字符");
+        // 边写临时文件边计算摘要，只读一遍上传流
+        Path temp = tmpDir.resolve(UUID.randomUUID().toString());
+        MessageDigest digest = HashUtils.newSha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
         }
+        return placeBlob(temp, HashUtils.toHex(digest.digest()), originalFileName);
+    }
 
-        // 创建assignments子目录
-        Path assignmentsDir = this.fileStorageLocation.resolve("assignments");
-        Files.createDirectories(assignmentsDir);
+    @Override
+    public String storeFile(Path source, String originalFilename) throws IOException {
+        // 先移入临时目录，由存储统一清理
+        Path temp = tmpDir.resolve(UUID.randomUUID().toString());
+        Files.move(source, temp);
 
-        // 复制文件到目标位置
-        Path targetLocation = assignmentsDir.resolve(fileName);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        MessageDigest digest = HashUtils.newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(temp), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) != -1) {
+                // 只需计算摘要
+            }
+        }
+        return placeBlob(temp, HashUtils.toHex(digest.digest()), originalFilename);
+    }
 
-        // 返回相对路径
-        return "uploads/assignments/" + fileName;
+    /**
+     * 增加引用并放置内容：内容已存在时丢弃临时文件，否则写入存储后端
+     */
+    private String placeBlob(Path temp, String sha256, String originalFilename) throws IOException {
+        long size = Files.size(temp);
+        String key = blobKey(sha256);
+        try {
+            // 上传到对象存储可能较慢，先在事务外写入；键由内容决定，重复写入无害
+            if (!blobExists(sha256)) {
+                storageBackend.put(key, temp);
+            }
+            transactionTemplate.execute(status -> {
+                // 先取得行锁，与释放引用互斥，避免刚确认存在的内容被删除
+                fileBlobMapper.acquire(sha256, size);
+                try {
+                    // 写入后、取得行锁前，最后一个引用可能已被释放并删除了内容
+                    if (!blobExists(sha256)) {
+                        storageBackend.put(key, temp);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return BLOB_URL_PREFIX + sha256 + extensionOf(originalFilename);
     }
 
     @Override
-    public Resource loadFileAsResource(String fileUrl) throws IOException {
+    public StoredFile getStoredFile(String fileUrl) throws IOException {
+        Matcher matcher = BLOB_URL_PATTERN.matcher(fileUrl);
+        boolean immutable = matcher.matches();
+        StorageBackend backend;
+        String key;
+        StorageObject object;
         try {
-            // 如果fileUrl包含完整路径，直接使用
-            Path filePath;
-            if (fileUrl.startsWith("uploads/")) {
-                filePath = Paths.get(fileUrl).normalize();
+            if (immutable) {
+                backend = storageBackend;
+                key = blobKey(matcher.group(1));
+                object = backend.stat(key);
+                if (object == null) {
+                    // 尚未迁移的平铺文件
+                    backend = flatBlobStorage;
+                    key = matcher.group(1);
+                    object = backend.stat(key);
+                }
+                if (object == null) {
+                    object = statCold(matcher.group(1));
+                    backend = coldStorage;
+                    key = blobKey(matcher.group(1));
+                }
             } else {
-                // 否则假设只有文件名，添加assignments目录
-                filePath = this.fileStorageLocation.resolve("assignments").resolve(fileUrl).normalize();
+                backend = legacyBackend(fileUrl);
+                key = fileUrl;
+                object = backend.stat(key);
             }
-            
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new IOException("文件不存在: " + fileUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("文件不存在: " + fileUrl, e);
+        }
+        if (object == null) {
+            throw new IOException("文件不存在: " + fileUrl);
+        }
+
+        if (immutable) {
+            recordAccess(matcher.group(1));
+        }
+        // 去重存储直接用内容摘要作ETag，旧文件用大小和修改时间
+        String etag = immutable ? matcher.group(1)
+                : Long.toHexString(object.getSize()) + "-" + Long.toHexString(object.getLastModifiedMillis());
+        return new StoredFile(backend, key, StringUtils.getFilename(fileUrl), object.getSize(),
+                object.getLastModifiedMillis(), "\"" + etag + "\"", immutable);
+    }
+
+    @Override
+    public void releaseFiles(Collection<String> fileUrls) {
+        if (fileUrls.isEmpty()) {
+            return;
+        }
+        List<String> urls = new ArrayList<>(fileUrls);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cleanupExecutor.execute(() -> release(urls));
+                }
+            });
+        } else {
+            cleanupExecutor.execute(() -> release(urls));
+        }
+    }
+
+    private void release(List<String> fileUrls) {
+        for (String fileUrl : fileUrls) {
+            try {
+                Matcher matcher = BLOB_URL_PATTERN.matcher(fileUrl);
+                if (matcher.matches()) {
+                    releaseBlob(matcher.group(1));
+                } else {
+                    // 去重存储之前的文件没有引用计数，每个地址独占一个文件
+                    legacyBackend(fileUrl).delete(fileUrl);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to release file {}: {}", fileUrl, e.getMessage());
+            }
+        }
+    }
+
+    private void releaseBlob(String sha256) {
+        transactionTemplate.execute(status -> {
+            FileBlob blob = fileBlobMapper.selectForUpdate(sha256);
+            if (blob == null) {
+                return null;
+            }
+            if (blob.getRefCount() > 1) {
+                fileBlobMapper.release(sha256);
+                return null;
+            }
+            // 最后一个引用：持有行锁时删除内容和记录，并发的新增引用会等待并重新放置内容
+            try {
+                storageBackend.delete(blobKey(sha256));
+                coldStorage.delete(blobKey(sha256));
+                flatBlobStorage.delete(sha256);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            fileBlobMapper.deleteById(sha256);
+            return null;
+        });
+    }
+
+    private boolean blobExists(String sha256) throws IOException {
+        return storageBackend.stat(blobKey(sha256)) != null || flatBlobStorage.stat(sha256) != null
+                || coldStorage.stat(blobKey(sha256)) != null;
+    }
+
+    /**
+     * 冷存储中内容的元数据，大小取原始大小
+     */
+    private StorageObject statCold(String sha256) throws IOException {
+        StorageObject compressed = coldStorage.stat(blobKey(sha256));
+        if (compressed == null) {
+            return null;
+        }
+        FileBlob blob = fileBlobMapper.selectById(sha256);
+        if (blob == null) {
+            return null;
+        }
+        return new StorageObject(compressed.getKey(), blob.getSize(), compressed.getLastModifiedMillis());
+    }
+
+    /**
+     * 异步记录读取时间，同一内容每小时最多写一次
+     */
+    private void recordAccess(String sha256) {
+        if (recentlyAccessed.asMap().putIfAbsent(sha256, Boolean.TRUE) != null) {
+            return;
+        }
+        cleanupExecutor.execute(() -> {
+            try {
+                fileBlobMapper.touch(sha256);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to record access of blob {}: {}", sha256, e.getMessage());
             }
-        } catch (MalformedURLException ex) {
-            throw new IOException("文件不存在: " + fileUrl, ex);
+        });
+    }
+
+    @Override
+    public long compressFile(String fileUrl, LocalDateTime idleBefore) throws IOException {
+        Matcher matcher = BLOB_URL_PATTERN.matcher(fileUrl);
+        if (!matcher.matches() || ZipUtils.isCompressed(fileUrl)) {
+            return 0;
+        }
+        String sha256 = matcher.group(1);
+        FileBlob blob = fileBlobMapper.selectById(sha256);
+        if (blob == null || blob.getCompression() != null) {
+            return 0;
+        }
+        LocalDateTime lastAccessed = blob.getLastAccessedAt() != null ? blob.getLastAccessedAt() : blob.getCreatedAt();
+        if (lastAccessed != null && lastAccessed.isAfter(idleBefore)) {
+            return 0;
         }
+        String key = blobKey(sha256);
+        if (storageBackend.stat(key) == null) {
+            // 平铺文件等分片迁移之后再处理
+            return 0;
+        }
+
+        Path temp = tmpDir.resolve(UUID.randomUUID() + ".gz");
+        try {
+            long compressedSize;
+            try (InputStream in = storageBackend.get(key)) {
+                compressedSize = GzipStorageBackend.compress(in, temp);
+            }
+            if (compressedSize * 100 > blob.getSize() * (100 - minSavingPercent)) {
+                // 收益不足，记录下来不再重试
+                fileBlobMapper.updateCompression(sha256, COMPRESSION_NONE, null);
+                return 0;
+            }
+            storageBackend.put(GzipStorageBackend.compressedKey(key), temp);
+
+            Boolean compressed = transactionTemplate.execute(status -> {
+                // 持有行锁时切换，与新增引用时的放置和最后一次释放时的删除互斥
+                FileBlob locked = fileBlobMapper.selectForUpdate(sha256);
+                try {
+                    if (locked == null || locked.getCompression() != null) {
+                        // 压缩期间内容已被释放或已被其他节点处理
+                        if (locked == null) {
+                            coldStorage.delete(key);
+                        }
+                        return false;
+                    }
+                    fileBlobMapper.updateCompression(sha256, COMPRESSION_GZIP, compressedSize);
+                    storageBackend.delete(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            });
+            return Boolean.TRUE.equals(compressed) ? blob.getSize() - compressedSize : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private StorageBackend legacyBackend(String fileUrl) {
+        // 如果fileUrl包含完整路径，直接使用；否则假设只有文件名，位于assignments目录
+        return fileUrl.startsWith("uploads/") ? legacyStorage : legacyAssignmentStorage;
+    }
+
+    @Override
+    public void retainFile(String fileUrl) {
+        Matcher matcher = BLOB_URL_PATTERN.matcher(fileUrl);
+        if (!matcher.matches() || fileBlobMapper.retain(matcher.group(1)) == 0) {
+            throw new IllegalArgumentException("文件不存在: " + fileUrl);
+        }
+    }
+
+    @Override
+    public int shardFlatBlobs(int limit) throws IOException {
+        if (!Files.isDirectory(blobDir)) {
+            return 0;
+        }
+        int moved = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(blobDir)) {
+            for (Path flat : stream) {
+                if (moved >= limit) {
+                    break;
+                }
+                String name = flat.getFileName().toString();
+                if (!SHA256_PATTERN.matcher(name).matches() || !Files.isRegularFile(flat)) {
+                    continue;
+                }
+                // 先写入存储后端再删除平铺文件；读取时先查存储后端再查平铺文件，移动过程中始终可读
+                storageBackend.put(blobKey(name), flat);
+                Files.delete(flat);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static String blobKey(String sha256) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    private static String extensionOf(String originalFilename) {
+        int dot = originalFilename != null ? originalFilename.lastIndexOf(".") : -1;
+        if (dot < 0 || originalFilename.indexOf('/', dot) >= 0 || originalFilename.indexOf('\\', dot) >= 0) {
+            return "";
+        }
+        return originalFilename.substring(dot);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // 等待已提交的释放任务执行完
+        cleanupExecutor.shutdown();
+        cleanupExecutor.awaitTermination(10, TimeUnit.SECONDS);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.Assignment;
+import com.yanxi.yanxiapi.entity.ClassEntity;
+import com.yanxi.yanxiapi.entity.ClassStudent;
+import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.mapper.AssignmentMapper;
+import com.yanxi.yanxiapi.mapper.ClassMapper;
+import com.yanxi.yanxiapi.mapper.ClassStudentMapper;
+import com.yanxi.yanxiapi.mapper.UserMapper;
+import com.yanxi.yanxiapi.service.SearchService;
+import com.yanxi.yanxiapi.utils.TrigramIndex;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 内存搜索索引
+ * 学生按邮箱、姓名、用户名，作业按标题、描述建立三元组倒排索引，另外维护班级-教师、班级-学生关系用于限定教师范围。
+ * 所有修改串行执行；重建时新索引在后台线程中由游标流式加载，期间的修改同时记入待重放队列，
+ * 加载完成后按顺序重放再替换旧索引，加载期间的修改不会丢失。多节点部署时其他节点的修改由定期重建同步。
+ */
+@Service
+public class SearchServiceImpl implements SearchService, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchServiceImpl.class);
+
+    private static final String STUDENT_ROLE = "student";
+
+    private final UserMapper userMapper;
+    private final ClassMapper classMapper;
+    private final ClassStudentMapper classStudentMapper;
+    private final AssignmentMapper assignmentMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService buildExecutor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("search-index-"));
+
+    private volatile IndexState current = new IndexState();
+    private volatile boolean ready;
+
+    // 重建期间的修改，由 this 保护
+    private List<Consumer<IndexState>> pending;
+
+    public SearchServiceImpl(UserMapper userMapper,
+                             ClassMapper classMapper,
+                             ClassStudentMapper classStudentMapper,
+                             AssignmentMapper assignmentMapper,
+                             TransactionTemplate transactionTemplate) {
+        this.userMapper = userMapper;
+        this.classMapper = classMapper;
+        this.classStudentMapper = classStudentMapper;
+        this.assignmentMapper = assignmentMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 启动完成后在后台构建，不阻塞启动；数据库不可用时保持未就绪，等待下次定时重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        buildExecutor.execute(this::rebuild);
+    }
+
+    @Scheduled(initialDelayString = "${search.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${search.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        buildExecutor.execute(this::rebuild);
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (this) {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        IndexState state = new IndexState();
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.execute(status -> {
+                load(userMapper.streamStudents(), state::putStudent);
+                load(classMapper.streamAll(), c -> state.putClass(c.getId(), c.getTeacherId()));
+                load(classStudentMapper.streamAll(), cs -> state.addClassStudent(cs.getClassId(), cs.getStudentId()));
+                load(assignmentMapper.streamAll(), state::putAssignment);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            logger.warn("Failed to build search index: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            pending.forEach(change -> change.accept(state));
+            pending = null;
+            current = state;
+            ready = true;
+        }
+        logger.info("Search index built in {} ms: {} students, {} assignments",
+                System.currentTimeMillis() - start, state.students.size(), state.assignments.size());
+    }
+
+    private static <T> void load(Cursor<T> cursor, Consumer<T> consumer) {
+        try (Cursor<T> rows = cursor) {
+            rows.forEach(consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public List<User> searchStudents(Long teacherId, Long classId, String query, int limit) {
+        IndexState state = current;
+        Set<Long> classes = state.teacherClasses.getOrDefault(teacherId, Collections.emptySet());
+        if (classId != null) {
+            classes = classes.contains(classId) ? Collections.singleton(classId) : Collections.emptySet();
+        }
+        Set<Long> scope = new HashSet<>();
+        for (Long id : classes) {
+            scope.addAll(state.classStudents.getOrDefault(id, Collections.emptySet()));
+        }
+        return state.students.search(query, scope, limit);
+    }
+
+    @Override
+    public List<Assignment> searchAssignments(Long teacherId, String query, int limit) {
+        IndexState state = current;
+        return state.assignments.search(query,
+                state.teacherAssignments.getOrDefault(teacherId, Collections.emptySet()), limit);
+    }
+
+    @Override
+    public void indexStudent(User student) {
+        if (student.getId() == null || !STUDENT_ROLE.equalsIgnoreCase(student.getUserType())) {
+            return;
+        }
+        User copy = searchFields(student);
+        afterCommit(state -> state.putStudent(copy));
+    }
+
+    @Override
+    public void indexClass(ClassEntity classEntity) {
+        Long classId = classEntity.getId();
+        Long teacherId = classEntity.getTeacherId();
+        afterCommit(state -> state.putClass(classId, teacherId));
+    }
+
+    @Override
+    public void removeClass(Long classId) {
+        afterCommit(state -> state.removeClass(classId));
+    }
+
+    @Override
+    public void addClassStudent(Long classId, Long studentId) {
+        afterCommit(state -> state.addClassStudent(classId, studentId));
+    }
+
+    @Override
+    public void addClassStudents(Long classId, Collection<Long> studentIds) {
+        List<Long> copy = new ArrayList<>(studentIds);
+        afterCommit(state -> copy.forEach(studentId -> state.addClassStudent(classId, studentId)));
+    }
+
+    @Override
+    public void removeClassStudent(Long classId, Long studentId) {
+        afterCommit(state -> state.removeClassStudent(classId, studentId));
+    }
+
+    @Override
+    public void indexAssignment(Assignment assignment) {
+        Assignment copy = new Assignment();
+        copy.setId(assignment.getId());
+        copy.setClassId(assignment.getClassId());
+        copy.setTeacherId(assignment.getTeacherId());
+        copy.setTitle(assignment.getTitle());
+        copy.setDescription(assignment.getDescription());
+        copy.setDueDate(assignment.getDueDate());
+        copy.setCreatedAt(assignment.getCreatedAt());
+        afterCommit(state -> state.putAssignment(copy));
+    }
+
+    private void afterCommit(Consumer<IndexState> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private synchronized void apply(Consumer<IndexState> change) {
+        change.accept(current);
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    /**
+     * 只保留检索和展示所需的字段
+     */
+    private static User searchFields(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setUserType(user.getUserType());
+        copy.setRealName(user.getRealName());
+        copy.setEmail(user.getEmail());
+        copy.setPhone(user.getPhone());
+        return copy;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        buildExecutor.shutdownNow();
+        buildExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 一份完整的索引，修改由外部串行化
+     */
+    private static final class IndexState {
+        final TrigramIndex<User> students = new TrigramIndex<>();
+        final TrigramIndex<Assignment> assignments = new TrigramIndex<>();
+        final Map<Long, Long> classTeacher = new ConcurrentHashMap<>();
+        final Map<Long, Set<Long>> teacherClasses = new ConcurrentHashMap<>();
+        final Map<Long, Set<Long>> classStudents = new ConcurrentHashMap<>();
+        final Map<Long, Set<Long>> teacherAssignments = new ConcurrentHashMap<>();
+
+        void putStudent(User student) {
+            students.put(student.getId(), searchFields(student),
+                    student.getEmail(), student.getRealName(), student.getUsername());
+        }
+
+        void putClass(Long classId, Long teacherId) {
+            if (teacherId == null) {
+                return;
+            }
+            classTeacher.put(classId, teacherId);
+            teacherClasses.computeIfAbsent(teacherId, id -> ConcurrentHashMap.newKeySet()).add(classId);
+        }
+
+        void removeClass(Long classId) {
+            Long teacherId = classTeacher.remove(classId);
+            if (teacherId != null) {
+                Set<Long> classes = teacherClasses.get(teacherId);
+                if (classes != null) {
+                    classes.remove(classId);
+                }
+            }
+            classStudents.remove(classId);
+        }
+
+        void addClassStudent(Long classId, Long studentId) {
+            classStudents.computeIfAbsent(classId, id -> ConcurrentHashMap.newKeySet()).add(studentId);
+        }
+
+        void removeClassStudent(Long classId, Long studentId) {
+            Set<Long> members = classStudents.get(classId);
+            if (members != null) {
+                members.remove(studentId);
+            }
+        }
+
+        void putAssignment(Assignment assignment) {
+            if (assignment.getTeacherId() == null) {
+                return;
+            }
+            assignments.put(assignment.getId(), assignment, assignment.getTitle(), assignment.getDescription());
+            teacherAssignments.computeIfAbsent(assignment.getTeacherId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(assignment.getId());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.mapper.AssignmentMapper;
+import com.yanxi.yanxiapi.mapper.AssignmentSubmissionHistoryMapper;
+import com.yanxi.yanxiapi.mapper.AssignmentSubmissionMapper;
+import com.yanxi.yanxiapi.mapper.FileUploadMapper;
+import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.service.StorageMigrationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在线迁移旧的平铺上传目录（uploads/assignments/）
+ * 每个文件：硬链接出一份交给去重存储 -> 短事务中把所有仍指向旧地址的 file_url 改为新地址，并按行数补齐引用 ->
+ * 提交后删除旧文件。改写是条件更新，迁移期间的正常读写不受影响；旧地址在删除前始终可读。
+ * 每批在单独的线程中执行，哈希和移动文件不占用共享的定时任务线程。
+ */
+@Service
+public class StorageMigrationServiceImpl implements StorageMigrationService, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigrationServiceImpl.class);
+
+    private static final String TEMP_SUFFIX = ".migrating";
+
+    private final FileService fileService;
+    private final AssignmentMapper assignmentMapper;
+    private final AssignmentSubmissionMapper submissionMapper;
+    private final AssignmentSubmissionHistoryMapper submissionHistoryMapper;
+    private final FileUploadMapper fileUploadMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Path legacyDir;
+    private final String legacyUrlPrefix;
+    private final Duration minAge;
+
+    @Value("${storage.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.migration.batch-size:100}")
+    private int batchSize;
+
+    private volatile boolean finished;
+
+    private final ExecutorService migrationExecutor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("storage-migration-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StorageMigrationServiceImpl(FileService fileService,
+                                       AssignmentMapper assignmentMapper,
+                                       AssignmentSubmissionMapper submissionMapper,
+                                       AssignmentSubmissionHistoryMapper submissionHistoryMapper,
+                                       FileUploadMapper fileUploadMapper,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${storage.migration.legacy-url-prefix:uploads/assignments/}") String legacyUrlPrefix,
+                                       @Value("${storage.migration.min-age-minutes:60}") long minAgeMinutes) {
+        this.fileService = fileService;
+        this.assignmentMapper = assignmentMapper;
+        this.submissionMapper = submissionMapper;
+        this.submissionHistoryMapper = submissionHistoryMapper;
+        this.fileUploadMapper = fileUploadMapper;
+        this.transactionTemplate = transactionTemplate;
+        // 旧地址是相对工作目录的路径，目录即地址前缀
+        this.legacyDir = Paths.get(legacyUrlPrefix).toAbsolutePath().normalize();
+        this.legacyUrlPrefix = legacyUrlPrefix;
+        this.minAge = Duration.ofMinutes(minAgeMinutes);
+    }
+
+    /**
+     * 开启 storage.migration.enabled 后定期迁移一批，全部完成后停止
+     */
+    @Scheduled(initialDelayString = "${storage.migration.interval-ms:10000}",
+            fixedDelayString = "${storage.migration.interval-ms:10000}")
+    public void migrate() {
+        // 上一批仍在执行时跳过本次触发
+        if (!enabled || finished || !running.compareAndSet(false, true)) {
+            return;
+        }
+        migrationExecutor.execute(() -> {
+            try {
+                migrateOnce();
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void migrateOnce() {
+        try {
+            BatchResult batch = migrateLegacyBatch(batchSize);
+            int sharded = fileService.shardFlatBlobs(batchSize);
+            if (batch.migrated > 0 || sharded > 0) {
+                logger.info("Storage migration: moved {} legacy files, sharded {} blobs", batch.migrated, sharded);
+            } else if (batch.remaining > 0) {
+                // 剩下的文件都太新或本轮迁移失败，继续轮询
+                logger.debug("Storage migration: {} legacy files waiting", batch.remaining);
+            } else {
+                finished = true;
+                logger.info("Storage migration finished");
+            }
+        } catch (Exception e) {
+            logger.warn("Storage migration batch failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int migrateBatch(int batchSize) {
+        return migrateLegacyBatch(batchSize).migrated;
+    }
+
+    private BatchResult migrateLegacyBatch(int batchSize) {
+        BatchResult result = new BatchResult();
+        if (!Files.isDirectory(legacyDir)) {
+            return result;
+        }
+        long youngest = System.currentTimeMillis() - minAge.toMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(legacyDir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                // 跳过中断遗留的临时链接
+                if (name.endsWith(TEMP_SUFFIX) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                // 本批已满时不再继续扫描，只记下还有文件
+                if (result.migrated >= batchSize) {
+                    result.remaining++;
+                    break;
+                }
+                // 最近写入、可能还未落库的文件（滚动发布时旧节点仍在写）留待之后的批次
+                if (Files.getLastModifiedTime(file).toMillis() > youngest) {
+                    result.remaining++;
+                    continue;
+                }
+                try {
+                    migrateFile(file, name);
+                    result.migrated++;
+                } catch (NoSuchFileException e) {
+                    // 迁移过程中被释放删除
+                } catch (IOException | RuntimeException e) {
+                    result.remaining++;
+                    logger.warn("Failed to migrate {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            // 无法列出目录时不能判断是否已完成
+            result.remaining++;
+            logger.warn("Failed to list {}: {}", legacyDir, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 一批迁移的结果：迁移的文件数，以及留待之后批次的文件数（过新、失败或超出本批数量）
+     */
+    private static final class BatchResult {
+        int migrated;
+        int remaining;
+    }
+
+    private void migrateFile(Path file, String name) throws IOException {
+        String oldUrl = legacyUrlPrefix + name;
+
+        // 链接出一份交给存储（存储会移走它），旧文件在地址改写提交前保持不动
+        Path staged = file.resolveSibling(name + TEMP_SUFFIX);
+        Files.deleteIfExists(staged);
+        try {
+            Files.createLink(staged, file);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(file, staged);
+        }
+        String newUrl = fileService.storeFile(staged, name);
+
+        try {
+            rewriteReferences(oldUrl, newUrl);
+        } catch (RuntimeException e) {
+            // 改写失败时旧地址仍然有效，释放刚取得的引用，下一轮重试
+            fileService.releaseFiles(Collections.singletonList(newUrl));
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        migrationExecutor.shutdownNow();
+        migrationExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void rewriteReferences(String oldUrl, String newUrl) {
+        transactionTemplate.execute(status -> {
+            int references = assignmentMapper.updateFileUrl(oldUrl, newUrl)
+                    + submissionMapper.updateFileUrl(oldUrl, newUrl)
+                    + submissionHistoryMapper.updateFileUrl(oldUrl, newUrl)
+                    + fileUploadMapper.updateFileUrl(oldUrl, newUrl);
+            if (references == 0) {
+                // 没有记录引用的旧文件，新内容的引用也一并释放
+                fileService.releaseFiles(Collections.singletonList(newUrl));
+            }
+            // 存储时已取得一次引用，多条记录共用同一地址时补齐
+            for (int i = 1; i < references; i++) {
+                fileService.retainFile(newUrl);
+            }
+            // 旧地址的文件在提交后删除
+            fileService.releaseFiles(Collections.singletonList(oldUrl));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.AssignmentSubmission;
+import com.yanxi.yanxiapi.mapper.AssignmentSubmissionMapper;
+import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.service.StorageTieringService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按提交ID键集扫描已截止作业的提交文件，交给 FileService 压缩；一轮扫描结束后从头开始下一轮。
+ * 节省的空间记入 storage.tiering.bytes.saved，冷文件读取增加的延迟见 storage.cold.read.open
+ * <p>
+ * 一批压缩可能持续数分钟，在单独的线程中执行，不占用共享的定时任务线程
+ */
+@Service
+public class StorageTieringServiceImpl implements StorageTieringService, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageTieringServiceImpl.class);
+
+    private final FileService fileService;
+    private final AssignmentSubmissionMapper submissionMapper;
+    private final Counter bytesSaved;
+    private final Counter filesCompressed;
+
+    @Value("${storage.tiering.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.tiering.batch-size:100}")
+    private int batchSize;
+
+    @Value("${storage.tiering.grace-days:14}")
+    private long graceDays;
+
+    @Value("${storage.tiering.idle-days:30}")
+    private long idleDays;
+
+    private final ExecutorService tieringExecutor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("storage-tiering-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // 当前一轮扫描的位置与统计，只在 tieringExecutor 线程中访问
+    private long afterSubmissionId;
+    private long passFiles;
+    private long passBytesSaved;
+
+    public StorageTieringServiceImpl(FileService fileService,
+                                     AssignmentSubmissionMapper submissionMapper,
+                                     MeterRegistry meterRegistry) {
+        this.fileService = fileService;
+        this.submissionMapper = submissionMapper;
+        this.bytesSaved = Counter.builder("storage.tiering.bytes.saved")
+                .description("Bytes saved by compressing cold files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.filesCompressed = Counter.builder("storage.tiering.files.compressed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 开启 storage.tiering.enabled 后定期处理一批
+     */
+    @Scheduled(initialDelayString = "${storage.tiering.interval-ms:60000}",
+            fixedDelayString = "${storage.tiering.interval-ms:60000}")
+    public void tier() {
+        // 上一批仍在执行时跳过本次触发
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        tieringExecutor.execute(() -> {
+            try {
+                compressBatch(batchSize);
+            } catch (Exception e) {
+                logger.warn("Storage tiering batch failed: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @Override
+    public int compressBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dueBefore = now.minus(Duration.ofDays(graceDays));
+        LocalDateTime idleBefore = now.minus(Duration.ofDays(idleDays));
+
+        List<AssignmentSubmission> batch = submissionMapper.selectColdFiles(dueBefore, afterSubmissionId, batchSize);
+        // 同一内容可能被多次提交，每批只处理一次
+        Set<String> seen = new HashSet<>();
+        for (AssignmentSubmission submission : batch) {
+            afterSubmissionId = submission.getId();
+            if (!seen.add(submission.getFileUrl())) {
+                continue;
+            }
+            try {
+                long saved = fileService.compressFile(submission.getFileUrl(), idleBefore);
+                if (saved > 0) {
+                    bytesSaved.increment(saved);
+                    filesCompressed.increment();
+                    passFiles++;
+                    passBytesSaved += saved;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to compress {}: {}", submission.getFileUrl(), e.getMessage());
+            }
+        }
+
+        if (batch.size() < batchSize) {
+            if (passFiles > 0) {
+                logger.info("Storage tiering pass finished: compressed {} files, saved {} bytes",
+                        passFiles, passBytesSaved);
+            }
+            afterSubmissionId = 0;
+            passFiles = 0;
+            passBytesSaved = 0;
+        }
+        return batch.size();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        tieringExecutor.shutdownNow();
+        tieringExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
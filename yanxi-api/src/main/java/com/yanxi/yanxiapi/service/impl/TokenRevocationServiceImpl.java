@@ -0,0 +1,167 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.TokenRevocation;
+import com.yanxi.yanxiapi.mapper.TokenRevocationMapper;
+import com.yanxi.yanxiapi.security.AuthenticatedTokenCache;
+import com.yanxi.yanxiapi.service.TokenRevocationService;
+import com.yanxi.yanxiapi.utils.BloomFilter;
+import com.yanxi.yanxiapi.utils.HashUtils;
+import com.yanxi.yanxiapi.utils.JwtUtils;
+import com.yanxi.yanxiapi.utils.VerifiedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * token吊销服务实现
+ * 吊销记录持久化在 token_revocation 表，内存中维护布隆过滤器 + 精确集合；
+ * 过滤器未命中即可判定未吊销，请求路径上不访问数据库。后台任务按吊销时间增量同步其他节点写入的记录：
+ * 自增ID不按提交顺序可见，较小的ID可能晚于较大的ID提交，因此每次回看一段时间窗口，重复加载的记录幂等。
+ */
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+
+    private static final int REFRESH_BATCH_SIZE = 1000;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final TokenRevocationMapper tokenRevocationMapper;
+    private final JwtUtils jwtUtils;
+    private final AuthenticatedTokenCache tokenCache;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final long refreshOverlapMillis;
+
+    private volatile RevocationSnapshot snapshot;
+
+    public TokenRevocationServiceImpl(TokenRevocationMapper tokenRevocationMapper,
+                                      JwtUtils jwtUtils,
+                                      AuthenticatedTokenCache tokenCache,
+                                      @Value("${jwt.revocation.expected-insertions:100000}") long expectedInsertions,
+                                      @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                      @Value("${jwt.revocation.refresh-overlap-ms:10000}") long refreshOverlapMillis) {
+        this.tokenRevocationMapper = tokenRevocationMapper;
+        this.jwtUtils = jwtUtils;
+        this.tokenCache = tokenCache;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshOverlapMillis = refreshOverlapMillis;
+        this.snapshot = new RevocationSnapshot(new BloomFilter(expectedInsertions, falsePositiveRate));
+    }
+
+    @Override
+    public void revokeToken(String token, String reason) {
+        VerifiedToken verified = jwtUtils.verifyToken(token);
+        String tokenHash = HashUtils.sha256Hex(token);
+
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setTokenHash(tokenHash);
+        // revoked_at 取数据库默认值，各节点的同步窗口都以数据库时钟为准
+        revocation.setExpiresAt(toLocalDateTime(verified.getExpiresAtMillis()));
+        revocation.setReason(reason);
+        tokenRevocationMapper.insert(revocation);
+
+        // 立即在本节点生效，增量同步位置只由查询结果推进
+        snapshot.addToken(tokenHash);
+        tokenCache.invalidate(tokenHash);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenHash) {
+        RevocationSnapshot current = snapshot;
+        return current.tokenFilter.mightContain(tokenHash) && current.revokedTokens.contains(tokenHash);
+    }
+
+    /**
+     * 增量同步新增的吊销记录
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${jwt.revocation.refresh-interval-ms:5000}")
+    public void refresh() {
+        try {
+            RevocationSnapshot current = snapshot;
+            LocalDateTime lastRevokedAt = current.lastRevokedAt;
+            load(current, lastRevokedAt != null
+                    ? lastRevokedAt.minusNanos(refreshOverlapMillis * 1_000_000L) : EPOCH);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh token revocations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期重建：清理已失效的记录，按当前数量重新分配布隆过滤器
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${jwt.revocation.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        try {
+            tokenRevocationMapper.deleteExpired(LocalDateTime.now());
+
+            long size = Math.max(expectedInsertions, snapshot.revokedTokens.size() * 2L);
+            RevocationSnapshot rebuilt = new RevocationSnapshot(new BloomFilter(size, falsePositiveRate));
+            load(rebuilt, EPOCH);
+            // 查询之后写入的记录落在下一次增量同步的回看窗口内
+            snapshot = rebuilt;
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild token revocations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按 (revoked_at, id) 分批加载吊销时间不早于 from 的未失效记录
+     */
+    private void load(RevocationSnapshot target, LocalDateTime from) {
+        LocalDateTime afterRevokedAt = from;
+        long afterId = 0;
+        List<TokenRevocation> batch;
+        do {
+            batch = tokenRevocationMapper.selectActiveAfter(afterRevokedAt, afterId, LocalDateTime.now(),
+                    REFRESH_BATCH_SIZE);
+            for (TokenRevocation revocation : batch) {
+                target.apply(revocation);
+                afterRevokedAt = revocation.getRevokedAt();
+                afterId = revocation.getId();
+            }
+        } while (batch.size() == REFRESH_BATCH_SIZE);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 内存中的吊销集合
+     */
+    private static class RevocationSnapshot {
+        private final BloomFilter tokenFilter;
+        private final Set<String> revokedTokens = ConcurrentHashMap.newKeySet();
+        private volatile LocalDateTime lastRevokedAt;
+
+        RevocationSnapshot(BloomFilter tokenFilter) {
+            this.tokenFilter = tokenFilter;
+        }
+
+        void apply(TokenRevocation revocation) {
+            addToken(revocation.getTokenHash());
+            LocalDateTime revokedAt = revocation.getRevokedAt();
+            if (revokedAt != null && (lastRevokedAt == null || revokedAt.isAfter(lastRevokedAt))) {
+                lastRevokedAt = revokedAt;
+            }
+        }
+
+        void addToken(String tokenHash) {
+            // 先放入精确集合，再置位过滤器，保证过滤器命中时精确集合已可见
+            revokedTokens.add(tokenHash);
+            tokenFilter.put(tokenHash);
+        }
+    }
+}
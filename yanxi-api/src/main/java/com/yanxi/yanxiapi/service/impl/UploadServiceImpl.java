@@ -0,0 +1,256 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.FileUpload;
+import com.yanxi.yanxiapi.mapper.FileUploadMapper;
+import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.service.UploadService;
+import com.yanxi.yanxiapi.utils.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 分片上传服务实现
+ * 分片直接从请求流写入单独的暂存文件，不经过 multipart 解析；校验通过后再由 FileChannel.transferTo
+ * 按偏移量拷入临时文件，校验失败的重传不会破坏已确认的部分；
+ * 进度保存在 file_upload 表，断线重连后从 received_size 继续；完成后存入 FileService 的去重存储
+ */
+@Service
+public class UploadServiceImpl implements UploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadServiceImpl.class);
+
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CLEANUP_BATCH_SIZE = 100;
+
+    private final FileUploadMapper fileUploadMapper;
+    private final FileService fileService;
+    private final Path tmpDir;
+    private final long maxFileSize;
+    private final long maxChunkSize;
+    private final long expireHours;
+
+    public UploadServiceImpl(FileUploadMapper fileUploadMapper,
+                             FileService fileService,
+                             @Value("${upload.tmp-dir:./uploads/tmp}") String tmpDir,
+                             @Value("${upload.max-file-size:1GB}") DataSize maxFileSize,
+                             @Value("${upload.max-chunk-size:16MB}") DataSize maxChunkSize,
+                             @Value("${upload.expire-hours:24}") long expireHours) {
+        this.fileUploadMapper = fileUploadMapper;
+        this.fileService = fileService;
+        this.tmpDir = Paths.get(tmpDir).toAbsolutePath().normalize();
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxChunkSize = maxChunkSize.toBytes();
+        this.expireHours = expireHours;
+    }
+
+    @Override
+    public FileUpload initUpload(Long userId, String fileName, long totalSize) {
+        if (fileName == null || fileName.trim().isEmpty()) {
+            throw new IllegalArgumentException("文件名不能为空");
+        }
+        if (totalSize <= 0 || totalSize > maxFileSize) {
+            throw new IllegalArgumentException("文件大小超出限制");
+        }
+
+        FileUpload upload = new FileUpload();
+        upload.setId(UUID.randomUUID().toString().replace("-", ""));
+        upload.setUserId(userId);
+        upload.setFileName(fileName);
+        upload.setTotalSize(totalSize);
+        upload.setReceivedSize(0L);
+        upload.setStatus(FileUpload.STATUS_UPLOADING);
+        upload.setCreatedAt(LocalDateTime.now());
+        upload.setUpdatedAt(LocalDateTime.now());
+        fileUploadMapper.insert(upload);
+        return upload;
+    }
+
+    @Override
+    public FileUpload getUpload(String uploadId, Long userId) {
+        if (uploadId == null || !UPLOAD_ID_PATTERN.matcher(uploadId).matches()) {
+            throw new IllegalArgumentException("上传不存在");
+        }
+        FileUpload upload = fileUploadMapper.selectById(uploadId);
+        if (upload == null || !upload.getUserId().equals(userId)) {
+            throw new IllegalArgumentException("上传不存在");
+        }
+        return upload;
+    }
+
+    @Override
+    public FileUpload writeChunk(String uploadId, Long userId, long offset, String checksum, InputStream body)
+            throws IOException {
+        FileUpload upload = getUpload(uploadId, userId);
+        if (!FileUpload.STATUS_UPLOADING.equals(upload.getStatus())) {
+            throw new IllegalStateException("上传已完成");
+        }
+        // 允许重传已写过的分片，但不能跳过未接收的部分
+        if (offset < 0 || offset > upload.getReceivedSize()) {
+            throw new IllegalStateException("分片偏移量不连续");
+        }
+        if (checksum == null || checksum.isEmpty()) {
+            throw new IllegalArgumentException("缺少分片校验值");
+        }
+
+        long maxLength = Math.min(upload.getTotalSize(), offset + maxChunkSize) - offset;
+        Files.createDirectories(tmpDir);
+        // 每个请求用自己的暂存文件，同一分片的并发重传互不干扰
+        Path chunkPath = tmpDir.resolve(uploadId + "-" + UUID.randomUUID().toString().replace("-", "") + ".chunk");
+        long position;
+        try {
+            MessageDigest digest = HashUtils.newSha256();
+            long length = 0;
+            try (OutputStream out = Files.newOutputStream(chunkPath, StandardOpenOption.CREATE_NEW)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (length + read > maxLength) {
+                        throw new IllegalArgumentException("分片超出文件大小或单片上限");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    length += read;
+                }
+            }
+
+            // 校验失败时 .part 文件未被改动，已确认接收的部分保持完整
+            if (!HashUtils.toHex(digest.digest()).equalsIgnoreCase(checksum)) {
+                throw new IllegalArgumentException("分片校验失败");
+            }
+            try (FileChannel source = FileChannel.open(chunkPath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(partPath(uploadId),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                target.position(offset);
+                long copied = 0;
+                while (copied < length) {
+                    copied += source.transferTo(copied, length - copied, target);
+                }
+            }
+            position = offset + length;
+        } finally {
+            Files.deleteIfExists(chunkPath);
+        }
+
+        if (fileUploadMapper.advanceReceived(uploadId, position, LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("上传已完成");
+        }
+        upload.setReceivedSize(Math.max(upload.getReceivedSize(), position));
+        return upload;
+    }
+
+    @Override
+    public FileUpload completeUpload(String uploadId, Long userId) throws IOException {
+        FileUpload upload = getUpload(uploadId, userId);
+        // 重复调用（如完成响应丢失后重试）直接返回结果
+        if (FileUpload.STATUS_COMPLETED.equals(upload.getStatus())) {
+            return upload;
+        }
+        if (!upload.getReceivedSize().equals(upload.getTotalSize())) {
+            throw new IllegalStateException("文件尚未上传完整");
+        }
+        // 先认领再移动 .part 文件，并发的完成请求不会去读已被移走的文件
+        if (fileUploadMapper.claimCompletion(uploadId, LocalDateTime.now()) == 0) {
+            FileUpload current = getUpload(uploadId, userId);
+            if (FileUpload.STATUS_COMPLETED.equals(current.getStatus())) {
+                return current;
+            }
+            throw new IllegalStateException("上传正在完成");
+        }
+
+        // 存入去重存储，上传会话持有这次引用直到被作业认领或过期清理
+        String fileUrl;
+        try {
+            fileUrl = fileService.storeFile(partPath(uploadId), upload.getFileName());
+        } catch (IOException | RuntimeException e) {
+            fileUploadMapper.releaseCompletion(uploadId, LocalDateTime.now());
+            throw e;
+        }
+        if (fileUploadMapper.markCompleted(uploadId, fileUrl, LocalDateTime.now()) == 0) {
+            fileService.releaseFiles(Collections.singletonList(fileUrl));
+            throw new IllegalArgumentException("上传不存在");
+        }
+        upload.setStatus(FileUpload.STATUS_COMPLETED);
+        upload.setFileUrl(fileUrl);
+        return upload;
+    }
+
+    @Override
+    public String consumeUpload(String uploadId, Long userId) {
+        FileUpload upload = getUpload(uploadId, userId);
+        if (!FileUpload.STATUS_COMPLETED.equals(upload.getStatus())
+                || fileUploadMapper.deleteCompleted(uploadId, userId) == 0) {
+            throw new IllegalArgumentException("上传未完成或已被使用");
+        }
+        return upload.getFileUrl();
+    }
+
+    /**
+     * 清理长时间未完成、或完成后一直未被作业引用的上传
+     */
+    @Scheduled(initialDelayString = "${upload.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${upload.cleanup-interval-ms:3600000}")
+    public void cleanupStaleUploads() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusHours(expireHours);
+            List<FileUpload> batch;
+            do {
+                batch = fileUploadMapper.selectStale(before, CLEANUP_BATCH_SIZE);
+                List<String> files = new ArrayList<>();
+                for (FileUpload upload : batch) {
+                    // 删除失败说明刚被认领，文件已有引用
+                    if (fileUploadMapper.deleteById(upload.getId()) == 0) {
+                        continue;
+                    }
+                    Files.deleteIfExists(partPath(upload.getId()));
+                    deleteChunkFiles(upload.getId());
+                    if (upload.getFileUrl() != null) {
+                        files.add(upload.getFileUrl());
+                    }
+                }
+                fileService.releaseFiles(files);
+            } while (batch.size() == CLEANUP_BATCH_SIZE);
+        } catch (Exception e) {
+            logger.warn("Failed to clean up stale uploads: {}", e.getMessage());
+        }
+    }
+
+    private Path partPath(String uploadId) {
+        return tmpDir.resolve(uploadId + ".part");
+    }
+
+    /**
+     * 删除进程中断时残留的分片暂存文件
+     */
+    private void deleteChunkFiles(String uploadId) throws IOException {
+        if (!Files.isDirectory(tmpDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> chunks = Files.newDirectoryStream(tmpDir, uploadId + "-*.chunk")) {
+            for (Path chunk : chunks) {
+                Files.deleteIfExists(chunk);
+            }
+        }
+    }
+}
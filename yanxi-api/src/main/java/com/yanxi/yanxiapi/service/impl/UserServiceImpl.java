@@ -2,22 +2,35 @@ package com.yanxi.yanxiapi.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.yanxi.yanxiapi.dto.UserLoginDTO;
 import com.yanxi.yanxiapi.dto.UserRegisterDTO;
 import com.yanxi.yanxiapi.entity.User;
 import com.yanxi.yanxiapi.mapper.UserMapper;
+import com.yanxi.yanxiapi.security.PasswordHashingExecutor;
+import com.yanxi.yanxiapi.service.SearchService;
 import com.yanxi.yanxiapi.service.UserService;
 import com.yanxi.yanxiapi.utils.JwtUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 用户服务实现类
@@ -25,22 +38,61 @@ import java.util.*;
 @Service
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
 
+    private static final int BATCH_QUERY_SIZE = 1000;
+
     @Autowired
     private UserMapper userMapper;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingExecutor passwordHashingExecutor;
 
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${user.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${user.cache.ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    /**
+     * 按ID缓存的用户，用户名、邮箱索引指向ID；TTL限制多节点部署下的不一致时间
+     */
+    private Cache<Long, User> usersById;
+    private Cache<String, Long> idsByUsername;
+    private Cache<String, Long> idsByEmail;
+
+    @PostConstruct
+    public void initCache() {
+        usersById = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        idsByUsername = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        idsByEmail = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "user");
+    }
+
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userMapper.findByUsername(username);
-        if (user == null) {
-            throw new UsernameNotFoundException("User not found with username: " + username);
-        }
+        User user = getUserByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
         List<GrantedAuthority> authorities = Arrays.asList(
             new SimpleGrantedAuthority("ROLE_" + user.getUserType()));
         return org.springframework.security.core.userdetails.User
@@ -51,19 +103,101 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     }
 
     @Override
-    @Transactional(readOnly = true)
+    public User getById(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        Long userId = ((Number) id).longValue();
+        User user = usersById.getIfPresent(userId);
+        if (user == null) {
+            user = userMapper.selectById(userId);
+            cacheUser(user);
+        }
+        return copyOf(user);
+    }
+
+    @Override
     public Optional<User> getUserById(Long id) {
         return Optional.ofNullable(getById(id));
     }
 
     @Override
-    @Transactional(readOnly = true)
     public Optional<User> getUserByUsername(String username) {
-        return Optional.ofNullable(userMapper.findByUsername(username));
+        User user = lookupByKey(idsByUsername, username, User::getUsername);
+        if (user == null) {
+            user = userMapper.findByUsername(username);
+            cacheUser(user);
+        }
+        return Optional.ofNullable(copyOf(user));
     }
 
     @Override
-    @Transactional
+    public User getByEmail(String email) {
+        User user = lookupByKey(idsByEmail, email, User::getEmail);
+        if (user == null) {
+            user = userMapper.findByEmail(email);
+            cacheUser(user);
+        }
+        return copyOf(user);
+    }
+
+    @Override
+    public Map<Long, User> getUsersByIds(Collection<Long> ids) {
+        Map<Long, User> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            User user = id != null ? usersById.getIfPresent(id) : null;
+            if (user != null) {
+                result.put(id, copyOf(user));
+            } else if (id != null) {
+                missing.add(id);
+            }
+        }
+        // 未命中的部分一次 IN 查询加载
+        for (int from = 0; from < missing.size(); from += BATCH_QUERY_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + BATCH_QUERY_SIZE, missing.size()));
+            for (User user : userMapper.selectBatchIds(chunk)) {
+                cacheUser(user);
+                result.put(user.getId(), copyOf(user));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean updated = super.updateById(entity);
+        evictUser(entity.getId());
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (id != null) {
+            evictUser(((Number) id).longValue());
+        }
+        return removed;
+    }
+
+    @Override
+    public void evictUser(Long userId) {
+        evictNow(userId);
+        // 事务提交后再清理一次，避免提交前被其他请求读回旧数据
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 密码哈希较慢，在事务外完成，只有插入用户时才占用数据库连接
+     */
+    @Override
     public User register(UserRegisterDTO registerDTO) {
         // 检查用户名是否已存在
         if (userMapper.findByUsername(registerDTO.getUsername()) != null) {
@@ -78,25 +212,39 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         // 创建新用户
         User user = new User();
         user.setUsername(registerDTO.getUsername());
-        user.setPassword(passwordEncoder.encode(registerDTO.getPassword()));
+        user.setPassword(passwordHashingExecutor.encode(registerDTO.getPassword()));
         user.setUserType(registerDTO.getUserType());
         user.setRealName(registerDTO.getRealName());
         user.setEmail(registerDTO.getEmail());
         user.setPhone(registerDTO.getPhone());
+        return transactionTemplate.execute(status -> saveRegisteredUser(user));
+    }
 
-        // 保存用户
+    private User saveRegisteredUser(User user) {
+        // 保存用户，事务提交后放入缓存
         save(user);
+        User saved = copyOf(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheUser(saved);
+                }
+            });
+        } else {
+            cacheUser(saved);
+        }
+        searchService.indexStudent(saved);
         return user;
     }
 
     @Override
-    @Transactional
     public String login(UserLoginDTO loginDTO) {
         User user = userMapper.findByUsername(loginDTO.getUsername());
         if (user == null) {
             throw new RuntimeException("用户不存在");
         }
-        if (!passwordEncoder.matches(loginDTO.getPassword(), user.getPassword())) {
+        if (!passwordHashingExecutor.matches(loginDTO.getPassword(), user.getPassword())) {
             throw new RuntimeException("密码错误");
         }
         return jwtUtils.generateToken(user);
@@ -108,13 +256,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     }
 
     @Override
-    @Transactional
     public Map<String, String> loginWithRole(UserLoginDTO loginDTO) {
         User user = userMapper.findByUsername(loginDTO.getUsername());
         if (user == null) {
             throw new RuntimeException("用户不存在");
         }
-        if (!passwordEncoder.matches(loginDTO.getPassword(), user.getPassword())) {
+        if (!passwordHashingExecutor.matches(loginDTO.getPassword(), user.getPassword())) {
             throw new RuntimeException("密码错误");
         }
         String token = jwtUtils.generateToken(user);
@@ -124,8 +271,59 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return response;
     }
 
-    @Override
-    public User getByEmail(String email) {
-        return null;
+    private void evictNow(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        User cached = usersById.getIfPresent(userId);
+        usersById.invalidate(userId);
+        if (cached != null) {
+            idsByUsername.invalidate(cached.getUsername());
+            if (cached.getEmail() != null) {
+                idsByEmail.invalidate(cached.getEmail());
+            }
+        }
+    }
+
+    private void cacheUser(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        usersById.put(user.getId(), copyOf(user));
+        idsByUsername.put(user.getUsername(), user.getId());
+        if (user.getEmail() != null) {
+            idsByEmail.put(user.getEmail(), user.getId());
+        }
+    }
+
+    /**
+     * 通过索引查缓存，索引与实体不一致时视为未命中
+     */
+    private User lookupByKey(Cache<String, Long> index, String key, Function<User, String> keyExtractor) {
+        if (key == null) {
+            return null;
+        }
+        Long id = index.getIfPresent(key);
+        if (id == null) {
+            return null;
+        }
+        User user = usersById.getIfPresent(id);
+        if (user == null || !key.equals(keyExtractor.apply(user))) {
+            index.invalidate(key);
+            return null;
+        }
+        return user;
+    }
+
+    /**
+     * 缓存中的实体不对外暴露，调用方拿到的是副本，可以放心修改
+     */
+    private static User copyOf(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
     }
 } 
\ No newline at end of file
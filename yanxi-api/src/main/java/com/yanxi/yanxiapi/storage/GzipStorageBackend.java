@@ -0,0 +1,106 @@
+package com.yanxi.yanxiapi.storage;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip 压缩的冷存储层：对象压缩后以 {key}.gz 存入底层后端，读取时边读边解压
+ * 范围读取需要从头解压到起始位置，stat 返回的是压缩后的大小
+ */
+public class GzipStorageBackend implements StorageBackend {
+
+    private static final String SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StorageBackend delegate;
+
+    private final Path tmpDir;
+
+    /**
+     * 打开对象并解压到起始位置的耗时，即冷存储给读取增加的首字节延迟
+     */
+    private final Timer openTimer;
+
+    public GzipStorageBackend(StorageBackend delegate, Path tmpDir, Timer openTimer) {
+        this.delegate = delegate;
+        this.tmpDir = tmpDir;
+        this.openTimer = openTimer;
+    }
+
+    /**
+     * 压缩后的对象在底层后端中的键
+     */
+    public static String compressedKey(String key) {
+        return key + SUFFIX;
+    }
+
+    /**
+     * 压缩文件
+     * @return 压缩后的大小
+     */
+    public static long compress(InputStream in, Path target) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return Files.size(target);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path temp = tmpDir.resolve(UUID.randomUUID() + SUFFIX);
+        try {
+            try (InputStream in = Files.newInputStream(source)) {
+                compress(in, temp);
+            }
+            delegate.put(compressedKey(key), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        long start = System.nanoTime();
+        InputStream in = new GZIPInputStream(delegate.get(compressedKey(key)), BUFFER_SIZE);
+        try {
+            long remaining = offset;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    throw new EOFException("Offset " + offset + " is beyond the end of " + key);
+                }
+                remaining -= skipped;
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        openTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return length < 0 ? in : new LimitedInputStream(in, length);
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        StorageObject object = delegate.stat(compressedKey(key));
+        return object == null ? null : new StorageObject(key, object.getSize(), object.getLastModifiedMillis());
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(compressedKey(key));
+    }
+}
@@ -0,0 +1,91 @@
+package com.yanxi.yanxiapi.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 本地磁盘存储，键即相对根目录的路径
+ */
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    public LocalStorageBackend(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try {
+                // 同一文件系统内建硬链接，不复制数据；对象不可变，可与源文件共享
+                Files.createLink(temp, source);
+            } catch (UnsupportedOperationException | IOException e) {
+                // 跨文件系统或不支持硬链接时退回复制
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // 重命名是原子的，读取方要么看到旧对象要么看到完整的新对象
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        InputStream in = Channels.newInputStream(channel);
+        return length < 0 ? in : new LimitedInputStream(in, length);
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        // 拒绝跳出根目录的键
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,188 @@
+package com.yanxi.yanxiapi.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * S3 协议对象存储，兼容 MinIO 等实现
+ * 超过分片阈值的文件使用分片上传，每个分片直接从本地文件对应区间读取
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3StorageBackend.class);
+
+    /**
+     * S3 要求除最后一片外每片至少 5MB
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final S3Client client;
+
+    private final String bucket;
+
+    private final String prefix;
+
+    private final long multipartThreshold;
+
+    private final long partSize;
+
+    public S3StorageBackend(S3Client client, String bucket, String prefix,
+                            long multipartThreshold, long partSize) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("S3 part size must be at least 5MB");
+        }
+        this.client = client;
+        this.bucket = bucket;
+        if (prefix == null || prefix.isEmpty()) {
+            this.prefix = "";
+        } else {
+            this.prefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        }
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size <= multipartThreshold) {
+                client.putObject(PutObjectRequest.builder().bucket(bucket).key(objectKey(key)).build(),
+                        RequestBody.fromFile(source));
+            } else {
+                multipartPut(objectKey(key), source, size);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (S3Exception e) {
+            throw new IOException("Failed to upload " + key + " to S3", e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        if (length == 0) {
+            // 空区间无需访问存储，Range 头也无法表示
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(objectKey(key));
+        if (offset > 0 || length > 0) {
+            request.range(length > 0
+                    ? "bytes=" + offset + "-" + (offset + length - 1)
+                    : "bytes=" + offset + "-");
+        }
+        try {
+            return client.getObject(request.build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            throw new IOException("Failed to read " + key + " from S3", e);
+        }
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        try {
+            HeadObjectResponse response = client.headObject(
+                    HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+            long lastModified = response.lastModified() != null ? response.lastModified().toEpochMilli() : 0L;
+            return new StorageObject(key, response.contentLength(), lastModified);
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            // HEAD 请求没有响应体，不存在时只能从状态码判断
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Failed to stat " + key + " in S3", e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to delete " + key + " from S3", e);
+        }
+    }
+
+    private void multipartPut(String objectKey, Path source, long size) {
+        String uploadId = client.createMultipartUpload(
+                CreateMultipartUploadRequest.builder().bucket(bucket).key(objectKey).build()).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                String eTag = client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket).key(objectKey).uploadId(uploadId)
+                                .partNumber(partNumber).contentLength(length).build(),
+                        RequestBody.fromContentProvider(partProvider(source, offset, length), length,
+                                "application/octet-stream")).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+            client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (RuntimeException e) {
+            try {
+                client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket).key(objectKey).uploadId(uploadId).build());
+            } catch (RuntimeException abortError) {
+                logger.warn("Failed to abort multipart upload {} of {}: {}", uploadId, objectKey,
+                        abortError.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 每次调用都重新打开文件区间，SDK 重试分片时可以从头读取
+     */
+    private static ContentStreamProvider partProvider(Path source, long offset, long length) {
+        return () -> {
+            try {
+                FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+                channel.position(offset);
+                return new LimitedInputStream(Channels.newInputStream(channel), length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+}
@@ -0,0 +1,54 @@
+package com.yanxi.yanxiapi.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 文件存储后端，按键读写不可变对象
+ * 键为以 / 分隔的相对路径；put 之后对象内容不再修改，只会被整体删除
+ */
+public interface StorageBackend {
+
+    /**
+     * 写入对象，键已存在时覆盖
+     * @param key 对象键
+     * @param source 本地文件，调用后仍由调用方负责删除
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * 读取对象的一段内容
+     * @param key 对象键
+     * @param offset 起始位置
+     * @param length 读取长度，小于0表示读到末尾
+     * @throws java.nio.file.NoSuchFileException 对象不存在
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    /**
+     * 读取整个对象
+     */
+    default InputStream get(String key) throws IOException {
+        return get(key, 0, -1);
+    }
+
+    /**
+     * 查询对象元数据
+     * @return 对象不存在时返回null
+     */
+    StorageObject stat(String key) throws IOException;
+
+    /**
+     * 删除对象，不存在时忽略
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 对象在本机磁盘上的位置，可用于 sendfile 等零拷贝发送；远程存储返回空
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
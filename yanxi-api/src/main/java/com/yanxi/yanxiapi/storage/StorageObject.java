@@ -0,0 +1,22 @@
+package com.yanxi.yanxiapi.storage;
+
+import lombok.Value;
+
+/**
+ * 存储对象的元数据
+ */
+@Value
+public class StorageObject {
+
+    String key;
+
+    /**
+     * 大小（字节）
+     */
+    long size;
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    long lastModifiedMillis;
+}
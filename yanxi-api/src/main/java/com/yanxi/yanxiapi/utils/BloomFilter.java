@@ -0,0 +1,56 @@
+package com.yanxi.yanxiapi.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的布隆过滤器，键为SHA-256十六进制摘要
+ * 摘要本身分布均匀，直接取前128位作双重哈希，不再额外计算哈希
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预计元素数量
+     * @param falsePositiveRate  期望误判率
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max((m + 63) / 64, 1);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max((int) Math.round((double) bitCount / n * Math.log(2)), 1);
+    }
+
+    public void put(String sha256Hex) {
+        long h1 = Long.parseUnsignedLong(sha256Hex.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(sha256Hex.substring(16, 32), 16);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String sha256Hex) {
+        long h1 = Long.parseUnsignedLong(sha256Hex.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(sha256Hex.substring(16, 32), 16);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
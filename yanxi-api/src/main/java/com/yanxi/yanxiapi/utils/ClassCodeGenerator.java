@@ -0,0 +1,158 @@
+package com.yanxi.yanxiapi.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 班级代码生成器：把（节点ID, 自增序号）组成的40位整数经带密钥的Feistel置换后编码为8位base32
+ * <p>
+ * 置换是双射，不同输入必然得到不同代码，无需查库去重；各节点使用不同的节点ID即互不冲突。
+ * 旧版代码是UUID前8位（全部为十六进制字符），新代码跳过全十六进制的结果以免与其重复。
+ */
+@Component
+public class ClassCodeGenerator {
+
+    /**
+     * Crockford base32，不含易混淆的 I、L、O、U
+     */
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int CODE_LENGTH = 8;
+    private static final int HALF_BITS = 20;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 2 * HALF_BITS - NODE_BITS;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    private final long nodeId;
+    private final long[] roundKeys = new long[ROUNDS];
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param nodeId 节点ID，多实例部署时每个实例必须不同
+     * @param key    置换密钥，修改后已发出的代码无法再解析出序号
+     */
+    public ClassCodeGenerator(@Value("${class.code.node-id:0}") int nodeId,
+                              @Value("${class.code.key:yanxi-class-code}") String key) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("class.code.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        ByteBuffer digest = ByteBuffer.wrap(HashUtils.newSha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+        for (int i = 0; i < ROUNDS; i++) {
+            roundKeys[i] = digest.getLong();
+        }
+    }
+
+    /**
+     * 生成下一个代码，无锁，可并发调用
+     */
+    public String next() {
+        while (true) {
+            long seq = sequence.getAndIncrement();
+            if (seq > MAX_SEQUENCE) {
+                throw new IllegalStateException("Class code sequence exhausted for node " + nodeId);
+            }
+            String code = encode(permute(nodeId << SEQUENCE_BITS | seq));
+            if (!isHex(code)) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * 解析本节点生成的代码对应的序号
+     *
+     * @return 序号；旧版代码、其他节点的代码或无法解析时返回-1
+     */
+    public long sequenceOf(String code) {
+        if (code == null || code.length() != CODE_LENGTH || isHex(code)) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            char c = code.charAt(i);
+            int digit = c < DECODE.length ? DECODE[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 5 | digit;
+        }
+        long plain = unpermute(value);
+        return plain >>> SEQUENCE_BITS == nodeId ? plain & MAX_SEQUENCE : -1;
+    }
+
+    /**
+     * 确保之后生成的序号大于给定序号，用于启动后跳过本节点已发出的代码
+     */
+    public void advancePast(long seq) {
+        sequence.accumulateAndGet(seq + 1, Math::max);
+    }
+
+    private long permute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ round(right, roundKeys[i]);
+            left = right;
+            right = next;
+        }
+        return left << HALF_BITS | right;
+    }
+
+    private long unpermute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ round(left, roundKeys[i]);
+            right = left;
+            left = previous;
+        }
+        return left << HALF_BITS | right;
+    }
+
+    /**
+     * 轮函数：splitmix64 混合后取低20位
+     */
+    private static long round(long half, long key) {
+        long h = (half ^ key) * 0x9E3779B97F4A7C15L;
+        h = (h ^ h >>> 30) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ h >>> 27) * 0x94D049BB133111EBL;
+        return (h ^ h >>> 31) & HALF_MASK;
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static boolean isHex(String code) {
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+package com.yanxi.yanxiapi.utils;
+
+import com.yanxi.yanxiapi.dto.StoredFile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * 文件下载：支持 ETag/Last-Modified 条件请求、单段 Range/If-Range 断点续传，
+ * 本地文件的正文优先交给 Tomcat sendfile 由内核直接发送，不支持时用 FileChannel.transferTo 写出；
+ * 对象存储中的文件按请求的范围读取后转发
+ */
+public class DownloadUtils {
+
+    // Tomcat NIO 连接器开启 useSendfile 时设置，见 org.apache.coyote.Constants
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void serve(StoredFile file, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // HTTP 日期只精确到秒
+        long lastModified = file.getLastModifiedMillis() / 1000 * 1000;
+        String etag = file.getEtag();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                file.isImmutable() ? "private, max-age=31536000, immutable" : "private, no-cache");
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        MediaType contentType = MediaTypeFactory.getMediaType(file.getFileName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(contentType.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(file.getFileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        long size = file.getSize();
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && isRangeApplicable(request, etag, lastModified)) {
+            long[] parsed = parseRange(range, size);
+            if (parsed == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            // 无法解析或多段范围时忽略 Range，返回完整内容
+            if (parsed != null) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+        transfer(file, start, length, request, response);
+    }
+
+    private static void transfer(StoredFile file, long start, long length,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Path> localPath = file.localPath();
+        if (!localPath.isPresent()) {
+            // 对象存储只能按范围读取后转发
+            try (InputStream in = file.open(start, length)) {
+                OutputStream out = response.getOutputStream();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // 请求处理结束后由 Tomcat 调用 sendfile，数据不经过用户态
+            request.setAttribute(SENDFILE_FILENAME, localPath.get().toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(localPath.get(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    // 文件在发送过程中被截断
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match 使用弱比较，存在时忽略 If-Modified-Since
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || stripWeak(tag).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range 与当前版本一致（ETag 强比较或日期相等）时才按 Range 返回部分内容
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    /**
+     * 解析单段字节范围
+     *
+     * @return {start, end}（含两端）；null 表示无法解析或多段，应忽略；UNSATISFIABLE 表示范围超出文件
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-N：最后N个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[]{Math.max(size - suffix, 0), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            return end < start ? null : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.yanxi.yanxiapi.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class HashUtils {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // 计算字符串的SHA-256摘要（十六进制）
+    public static String sha256Hex(String value) {
+        return toHex(newSha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+}
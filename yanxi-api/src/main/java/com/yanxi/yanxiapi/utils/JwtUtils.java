@@ -2,11 +2,17 @@ package com.yanxi.yanxiapi.utils;
 
 import com.yanxi.yanxiapi.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
 import java.util.Date;
 import java.util.Map;
 import java.util.function.Function;
@@ -17,6 +23,13 @@ public class JwtUtils {
     private static final String SECRET_KEY = "yanxi_secret_key"; // 生产环境应使用更安全的密钥
     private static final long EXPIRATION_TIME = 1000 * 60 * 60 * 10; // 10小时
 
+    // 与 signWith(alg, String) 相同的Base64解码方式预先生成密钥，已签发的token仍然有效
+    private static final Key SIGNING_KEY = new SecretKeySpec(
+            TextCodec.BASE64.decode(SECRET_KEY), SignatureAlgorithm.HS512.getJcaName());
+
+    // 配置完成后只读，可在线程间共享
+    private final JwtParser parser = Jwts.parser().setSigningKey(SIGNING_KEY);
+
     // 生成JWT
     public String generateToken(User user) {
         return Jwts.builder()
@@ -25,7 +38,7 @@ public class JwtUtils {
                 .claim("userType", user.getUserType())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(SignatureAlgorithm.HS512, SECRET_KEY)
+                .signWith(SignatureAlgorithm.HS512, SIGNING_KEY)
                 .compact();
     }
 
@@ -35,14 +48,42 @@ public class JwtUtils {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .signWith(SignatureAlgorithm.HS256, SIGNING_KEY)
                 .compact();
     }
 
+    /**
+     * 一次解析完成签名、过期时间和subject的校验
+     *
+     * @param token JWT
+     * @return 校验通过的声明
+     * @throws JwtException token无效、已过期或缺少subject
+     */
+    public VerifiedToken verifyToken(String token) {
+        // 解析时已校验签名，并对已过期的token抛出 ExpiredJwtException
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getSubject() == null || claims.getSubject().isEmpty()) {
+            throw new MalformedJwtException("JWT subject is missing");
+        }
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("JWT expiration is missing");
+        }
+        Object userId = claims.get("userId");
+        return new VerifiedToken(
+                claims.getSubject(),
+                userId instanceof Number ? ((Number) userId).longValue() : null,
+                claims.get("userType", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                claims.getExpiration().getTime());
+    }
+
     // 验证JWT
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            return verifyToken(token).getSubject().equals(userDetails.getUsername());
+        } catch (JwtException e) {
+            return false;
+        }
     }
 
     // 提取用户名
@@ -61,10 +102,6 @@ public class JwtUtils {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseClaimsJws(token).getBody();
     }
-}
\ No newline at end of file
+}
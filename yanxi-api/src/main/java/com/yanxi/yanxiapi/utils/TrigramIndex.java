@@ -0,0 +1,165 @@
+package com.yanxi.yanxiapi.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的三元组倒排索引，支持不区分大小写的子串查询
+ * 每个文档的各字段切成连续三个字符的片段，查询时取查询串各片段倒排表的交集，再用原文校验去掉误命中。
+ * 写操作需由调用方串行化，读操作可与写并发（可能短暂看到更新中的文档）。
+ */
+public class TrigramIndex<T> {
+
+    private final Map<Long, Document<T>> documents = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    /**
+     * 添加或替换文档
+     * @param id 文档ID
+     * @param value 查询命中时返回的对象
+     * @param fields 参与检索的字段，可为空
+     */
+    public void put(long id, T value, String... fields) {
+        remove(id);
+        String[] normalized = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = fields[i] != null ? normalize(fields[i]) : "";
+        }
+        Set<Long> grams = new HashSet<>();
+        for (String field : normalized) {
+            collectTrigrams(field, grams);
+        }
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        documents.put(id, new Document<>(value, normalized, grams));
+    }
+
+    public void remove(long id) {
+        Document<T> removed = documents.remove(id);
+        if (removed == null) {
+            return;
+        }
+        for (Long gram : removed.grams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram, ids);
+                }
+            }
+        }
+    }
+
+    public T get(long id) {
+        Document<T> document = documents.get(id);
+        return document != null ? document.value : null;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * 在给定范围内查找任一字段包含查询串的文档
+     * @param query 查询串，不区分大小写
+     * @param scope 可命中的文档ID
+     * @param limit 最多返回的条数
+     * @return 按文档ID倒序（较新的在前）
+     */
+    public List<T> search(String query, Set<Long> scope, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || scope.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // 不足三个字符时没有片段可用，直接扫描范围；否则从最短的倒排表（或更小的范围）出发
+        Collection<Long> candidates = scope;
+        List<Set<Long>> lists = new ArrayList<>();
+        Set<Long> grams = new HashSet<>();
+        collectTrigrams(q, grams);
+        for (Long gram : grams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        if (!lists.isEmpty() && lists.get(0).size() < scope.size()) {
+            candidates = lists.get(0);
+        }
+
+        List<Long> matched = new ArrayList<>();
+        for (Long id : candidates) {
+            if (!scope.contains(id) || !inAll(lists, id)) {
+                continue;
+            }
+            Document<T> document = documents.get(id);
+            if (document != null && document.contains(q)) {
+                matched.add(id);
+            }
+        }
+        matched.sort(Comparator.reverseOrder());
+
+        List<T> results = new ArrayList<>(Math.min(limit, matched.size()));
+        for (Long id : matched) {
+            if (results.size() >= limit) {
+                break;
+            }
+            Document<T> document = documents.get(id);
+            if (document != null) {
+                results.add(document.value);
+            }
+        }
+        return results;
+    }
+
+    private static boolean inAll(List<Set<Long>> lists, Long id) {
+        for (Set<Long> ids : lists) {
+            if (!ids.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void collectTrigrams(String text, Set<Long> grams) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+
+    private static final class Document<T> {
+        final T value;
+        final String[] fields;
+        final Set<Long> grams;
+
+        Document(T value, String[] fields, Set<Long> grams) {
+            this.value = value;
+            this.fields = fields;
+            this.grams = grams;
+        }
+
+        boolean contains(String query) {
+            for (String field : fields) {
+                if (field.contains(query)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
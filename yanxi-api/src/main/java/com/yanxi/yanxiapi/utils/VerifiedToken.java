@@ -0,0 +1,35 @@
+package com.yanxi.yanxiapi.utils;
+
+import lombok.Value;
+
+/**
+ * 已通过校验的JWT声明（不可变）
+ */
+@Value
+public class VerifiedToken {
+
+    /**
+     * 用户名（sub）
+     */
+    String subject;
+
+    /**
+     * 用户ID，旧token可能为空
+     */
+    Long userId;
+
+    /**
+     * 用户类型，旧token可能为空
+     */
+    String userType;
+
+    /**
+     * 签发时间（毫秒时间戳）
+     */
+    long issuedAtMillis;
+
+    /**
+     * 过期时间（毫秒时间戳）
+     */
+    long expiresAtMillis;
+}
@@ -0,0 +1,85 @@
+package com.yanxi.yanxiapi.utils;
+
+import com.yanxi.yanxiapi.dto.StoredFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP打包：已压缩的格式直接存储（STORED），只对其余文件做deflate
+ */
+public class ZipUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 再压缩几乎没有收益的格式，docx/xlsx/pptx 本身就是ZIP
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "zip", "rar", "7z", "gz", "tgz", "bz2", "xz",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "m4a", "aac", "mp4", "mov", "avi", "mkv", "webm",
+            "docx", "xlsx", "pptx", "pdf", "epub"));
+
+    /**
+     * 将文件写为一个ZIP条目
+     */
+    public static void writeEntry(ZipOutputStream zip, String entryName, StoredFile file) throws IOException {
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setTime(file.getLastModifiedMillis());
+        if (isCompressed(entryName)) {
+            // STORED 条目需要预先写入大小和CRC，多读一遍（本地文件通常在页缓存中）比deflate省CPU
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(file.getSize());
+            entry.setCompressedSize(file.getSize());
+            entry.setCrc(crc32(file));
+        }
+        zip.putNextEntry(entry);
+        try (InputStream in = file.open()) {
+            copy(in, zip);
+        }
+        zip.closeEntry();
+    }
+
+    /**
+     * 去掉文件名中不能出现在ZIP路径里的字符
+     */
+    public static String sanitize(String name) {
+        String cleaned = name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        return cleaned.isEmpty() || cleaned.equals(".") || cleaned.equals("..") ? "_" : cleaned;
+    }
+
+    /**
+     * 按扩展名判断文件是否已是压缩格式
+     */
+    public static boolean isCompressed(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static long crc32(StoredFile file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = file.open()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
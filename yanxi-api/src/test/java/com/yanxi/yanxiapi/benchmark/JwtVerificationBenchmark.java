@@ -0,0 +1,81 @@
+package com.yanxi.yanxiapi.benchmark;
+
+import com.yanxi.yanxiapi.entity.User;
+import com.yanxi.yanxiapi.utils.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比原 validateToken 路径（三次解析、每次新建解析器）与 verifyToken 单次解析
+ * <p>
+ * 运行：mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath com.yanxi.yanxiapi.benchmark.JwtVerificationBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    // 与 JwtUtils 中的密钥一致
+    private static final String SECRET_KEY = "yanxi_secret_key";
+
+    private JwtUtils jwtUtils;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("student42");
+        user.setUserType("STUDENT");
+        token = jwtUtils.generateToken(user);
+    }
+
+    /**
+     * 原实现：extractUsername + validateToken（再次提取用户名和过期时间）
+     */
+    @Benchmark
+    public boolean legacyValidateToken() {
+        String username = legacyClaims(token).getSubject();
+        return legacyClaims(token).getSubject().equals(username)
+                && !legacyClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public Object verifyToken() {
+        return jwtUtils.verifyToken(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,141 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.Assignment;
+import com.yanxi.yanxiapi.entity.AssignmentSubmission;
+import com.yanxi.yanxiapi.mapper.AssignmentMapper;
+import com.yanxi.yanxiapi.mapper.AssignmentSubmissionHistoryMapper;
+import com.yanxi.yanxiapi.mapper.AssignmentSubmissionMapper;
+import com.yanxi.yanxiapi.mapper.ClassStudentMapper;
+import com.yanxi.yanxiapi.security.ClaimsUserPrincipal;
+import com.yanxi.yanxiapi.security.UserPrincipal;
+import com.yanxi.yanxiapi.service.FileService;
+import com.yanxi.yanxiapi.service.SearchService;
+import com.yanxi.yanxiapi.service.UploadService;
+import com.yanxi.yanxiapi.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 提交作业时，文件写入磁盘期间不能开启事务（即不占用数据库连接）
+ */
+class AssignmentSubmissionTransactionTest {
+
+    private static final long ASSIGNMENT_ID = 1L;
+    private static final long CLASS_ID = 10L;
+    private static final String STAGED_FILE_URL = "blobs/staged.txt";
+
+    private final UserPrincipal student = new ClaimsUserPrincipal(100L, "student", "STUDENT");
+
+    private PlatformTransactionManager transactionManager;
+    private AssignmentMapper assignmentMapper;
+    private ClassStudentMapper classStudentMapper;
+    private AssignmentSubmissionMapper submissionMapper;
+    private FileService fileService;
+    private AssignmentServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        transactionManager = mock(PlatformTransactionManager.class);
+        assignmentMapper = mock(AssignmentMapper.class);
+        classStudentMapper = mock(ClassStudentMapper.class);
+        submissionMapper = mock(AssignmentSubmissionMapper.class);
+        fileService = mock(FileService.class);
+
+        service = new AssignmentServiceImpl(classStudentMapper, mock(UserService.class), submissionMapper,
+                mock(AssignmentSubmissionHistoryMapper.class), fileService, new TransactionTemplate(transactionManager),
+                mock(UploadService.class), mock(SearchService.class));
+        ReflectionTestUtils.setField(service, "baseMapper", assignmentMapper);
+
+        // 模拟存储：读取上传流（此时检查事务状态）后返回文件地址
+        when(fileService.storeFile(any(MultipartFile.class))).thenAnswer(invocation -> {
+            MultipartFile file = invocation.getArgument(0);
+            try (InputStream in = file.getInputStream()) {
+                while (in.read() != -1) {
+                    // 读完整个流
+                }
+            }
+            return STAGED_FILE_URL;
+        });
+
+        Assignment assignment = new Assignment();
+        assignment.setId(ASSIGNMENT_ID);
+        assignment.setClassId(CLASS_ID);
+        when(assignmentMapper.selectByIdForUpdate(ASSIGNMENT_ID)).thenReturn(assignment);
+        when(assignmentMapper.insertSubmissionIgnore(any(AssignmentSubmission.class))).thenReturn(1);
+    }
+
+    @Test
+    void fileIsCopiedBeforeTransactionStarts() {
+        when(classStudentMapper.selectClassIdsByStudentId(student.getId()))
+                .thenReturn(Collections.singletonList(CLASS_ID));
+
+        service.submitAssignment(ASSIGNMENT_ID, new InspectingFile(), student);
+
+        ArgumentCaptor<AssignmentSubmission> submission = ArgumentCaptor.forClass(AssignmentSubmission.class);
+        verify(assignmentMapper).insertSubmissionIgnore(submission.capture());
+        assertEquals(STAGED_FILE_URL, submission.getValue().getFileUrl());
+
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stagedFileIsReleasedWhenTransactionFails() {
+        when(classStudentMapper.selectClassIdsByStudentId(student.getId())).thenReturn(Collections.emptyList());
+
+        assertThrows(RuntimeException.class,
+                () -> service.submitAssignment(ASSIGNMENT_ID, new InspectingFile(), student));
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(assignmentMapper, never()).insertSubmissionIgnore(any());
+        verify(assignmentMapper, never()).upsertSubmission(any());
+
+        ArgumentCaptor<Collection<String>> deleted = ArgumentCaptor.forClass(Collection.class);
+        verify(fileService).releaseFiles(deleted.capture());
+        assertEquals(Collections.singletonList(STAGED_FILE_URL), new ArrayList<>(deleted.getValue()));
+    }
+
+    /**
+     * 读取上传内容时检查：事务管理器未被调用，也没有访问数据库
+     */
+    private class InspectingFile extends MockMultipartFile {
+
+        InspectingFile() {
+            super("file", "homework.txt", "text/plain", "answer".getBytes());
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            verifyNoInteractions(transactionManager, assignmentMapper, classStudentMapper, submissionMapper);
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            return new ByteArrayInputStream("answer".getBytes());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.ClassEntity;
+import com.yanxi.yanxiapi.entity.ClassStudent;
+import com.yanxi.yanxiapi.mapper.ClassMapper;
+import com.yanxi.yanxiapi.mapper.ClassStudentMapper;
+import com.yanxi.yanxiapi.mapper.UserMapper;
+import com.yanxi.yanxiapi.security.ClaimsUserPrincipal;
+import com.yanxi.yanxiapi.security.UserPrincipal;
+import com.yanxi.yanxiapi.service.SearchService;
+import com.yanxi.yanxiapi.utils.ClassCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 同一班级代码的并发加入：代码只查一次库，重复加入被拒绝且不多计人数
+ * <p>
+ * 映射器是内存中的模拟实现，只校验服务层逻辑；数据库锁和吞吐量见 {@link ClassJoinLoadTest}
+ */
+class ClassJoinConcurrencyTest {
+
+    private static final long CLASS_ID = 10L;
+    private static final String CODE = "AB12CD34";
+    private static final int STUDENTS = 200;
+    private static final int THREADS = 32;
+    /**
+     * 每名学生重复提交的次数（模拟连点和客户端重试）
+     */
+    private static final int ATTEMPTS_PER_STUDENT = 2;
+
+    private ClassMapper classMapper;
+    private ClassStudentMapper classStudentMapper;
+    private ClassServiceImpl service;
+
+    /**
+     * 模拟 class_student 表，键即 uk_class_student
+     */
+    private final Map<String, Long> memberships = new ConcurrentHashMap<>();
+    private final AtomicInteger studentCount = new AtomicInteger();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger codeLookups = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        classMapper = mock(ClassMapper.class, withSettings().stubOnly());
+        classStudentMapper = mock(ClassStudentMapper.class, withSettings().stubOnly());
+
+        when(classMapper.findByCode(anyString())).thenAnswer(invocation -> {
+            // 查询有明显延迟，并发未命中时更容易重复查询
+            codeLookups.incrementAndGet();
+            Thread.sleep(20);
+            if (!CODE.equals(invocation.getArgument(0))) {
+                return null;
+            }
+            ClassEntity classEntity = new ClassEntity();
+            classEntity.setId(CLASS_ID);
+            classEntity.setName("Algorithms");
+            classEntity.setCode(CODE);
+            classEntity.setTeacherId(1L);
+            classEntity.setStudentCount(0);
+            return classEntity;
+        });
+        when(classStudentMapper.insertIgnore(any(ClassStudent.class))).thenAnswer(invocation -> {
+            ClassStudent classStudent = invocation.getArgument(0);
+            long id = nextId.incrementAndGet();
+            if (memberships.putIfAbsent(classStudent.getClassId() + ":" + classStudent.getStudentId(), id) != null) {
+                return 0;
+            }
+            classStudent.setId(id);
+            return 1;
+        });
+        when(classStudentMapper.findByClassIdAndStudentId(anyLong(), anyLong())).thenAnswer(invocation -> {
+            Long id = memberships.get(invocation.getArgument(0) + ":" + invocation.getArgument(1));
+            if (id == null) {
+                return null;
+            }
+            ClassStudent classStudent = new ClassStudent();
+            classStudent.setId(id);
+            return classStudent;
+        });
+        when(classMapper.incrementStudentCount(anyLong(), anyInt())).thenAnswer(invocation -> {
+            studentCount.addAndGet(invocation.getArgument(1));
+            return 1;
+        });
+        when(classMapper.selectStudentCount(anyLong())).thenAnswer(invocation -> studentCount.get());
+
+        service = new ClassServiceImpl(classMapper, classStudentMapper, mock(UserMapper.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(SearchService.class),
+                new ClassCodeGenerator(0, "test"),
+                new SimpleMeterRegistry(), 100, 600);
+        ReflectionTestUtils.setField(service, "baseMapper", classMapper);
+    }
+
+    @Test
+    void concurrentJoinsWithOneCodeInsertEachStudentOnce() throws Exception {
+        int callers = STUDENTS * ATTEMPTS_PER_STUDENT;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger joined = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                UserPrincipal student = new ClaimsUserPrincipal(1000L + i % STUDENTS, "s" + i % STUDENTS, "STUDENT");
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // 用户输入的代码大小写、空白不一致
+                    Optional<ClassEntity> classEntity = service.getClassByCode(" " + CODE.toLowerCase() + " ");
+                    try {
+                        service.addStudentToClass(classEntity.get(), student);
+                        joined.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        duplicates.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(STUDENTS, joined.get());
+        assertEquals(callers - STUDENTS, duplicates.get());
+        assertEquals(STUDENTS, memberships.size());
+        assertEquals(STUDENTS, studentCount.get());
+        // 所有并发请求共用同一次代码查询
+        assertEquals(1, codeLookups.get());
+        assertFalse(service.getClassByCode("missing").isPresent());
+    }
+}
@@ -0,0 +1,157 @@
+package com.yanxi.yanxiapi.service.impl;
+
+import com.yanxi.yanxiapi.entity.ClassEntity;
+import com.yanxi.yanxiapi.security.ClaimsUserPrincipal;
+import com.yanxi.yanxiapi.security.UserPrincipal;
+import com.yanxi.yanxiapi.service.ClassService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 开学时数百名学生同时用同一个班级代码加入，在真实 MySQL 上检查 InnoDB 加锁：不能出现死锁，人数与成员数一致
+ * <p>
+ * 需要已按 db_schema.sql 建表的数据库，默认不运行：
+ * mvn test -Pload-test -Dyanxi.load-test.url=jdbc:mysql://localhost:3306/yanxi_test
+ * -Dyanxi.load-test.username=root -Dyanxi.load-test.password=...
+ */
+@Tag("load")
+@EnabledIfSystemProperty(named = "yanxi.load-test.url", matches = ".+")
+@SpringBootTest
+class ClassJoinLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassJoinLoadTest.class);
+
+    private static final int STUDENTS = 300;
+    /**
+     * 每名学生重复提交的次数（模拟连点和客户端重试）
+     */
+    private static final int ATTEMPTS_PER_STUDENT = 2;
+    /**
+     * 加入请求的最低吞吐量，低于此值说明加入路径在班级行上排队过久
+     */
+    private static final long MIN_JOINS_PER_SECOND = 100;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("yanxi.load-test.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("yanxi.load-test.username", "root"));
+        registry.add("spring.datasource.password", () -> System.getProperty("yanxi.load-test.password", ""));
+        // 连接池小于并发数，请求需要排队获取连接，接近生产环境
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "20");
+    }
+
+    @Autowired
+    private ClassService classService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String prefix = "load" + System.currentTimeMillis() + "_";
+    private final List<UserPrincipal> students = new ArrayList<>();
+    private ClassEntity classEntity;
+
+    @BeforeEach
+    void setUp() {
+        UserPrincipal teacher = new ClaimsUserPrincipal(insertUser(prefix + "teacher", "teacher"),
+                prefix + "teacher", "TEACHER");
+        for (int i = 0; i < STUDENTS; i++) {
+            String username = prefix + "s" + i;
+            students.add(new ClaimsUserPrincipal(insertUser(username, "student"), username, "STUDENT"));
+        }
+        classEntity = classService.createClass(prefix + "class", teacher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (classEntity != null) {
+            jdbcTemplate.update("DELETE FROM class_student WHERE class_id = ?", classEntity.getId());
+            jdbcTemplate.update("DELETE FROM class WHERE id = ?", classEntity.getId());
+        }
+        jdbcTemplate.update("DELETE FROM user WHERE username LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void burstOfJoinsWithOneCodeCompletesWithoutDeadlocks() throws Exception {
+        int callers = STUDENTS * ATTEMPTS_PER_STUDENT;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger joined = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+        long elapsedMillis;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                UserPrincipal student = students.get(i % STUDENTS);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Optional<ClassEntity> found = classService.getClassByCode(classEntity.getCode());
+                    try {
+                        classService.addStudentToClass(found.get(), student);
+                        joined.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        duplicates.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // 死锁、锁等待超时等
+                        failures.computeIfAbsent(e.getClass().getSimpleName(), k -> new AtomicInteger())
+                                .incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } finally {
+            executor.shutdownNow();
+        }
+        long joinsPerSecond = callers * 1000L / elapsedMillis;
+        logger.info("{} join requests from {} students in {} ms ({} req/s)",
+                callers, STUDENTS, elapsedMillis, joinsPerSecond);
+
+        assertEquals(0, failures.size(), "Failed joins: " + failures);
+        assertEquals(STUDENTS, joined.get());
+        assertEquals(callers - STUDENTS, duplicates.get());
+        assertEquals(STUDENTS, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM class_student WHERE class_id = ?", Integer.class, classEntity.getId()));
+        assertEquals(STUDENTS, (int) jdbcTemplate.queryForObject(
+                "SELECT student_count FROM class WHERE id = ?", Integer.class, classEntity.getId()));
+        assertTrue(joinsPerSecond >= MIN_JOINS_PER_SECOND,
+                "Join throughput " + joinsPerSecond + " req/s is below " + MIN_JOINS_PER_SECOND);
+    }
+
+    private long insertUser(String username, String role) {
+        jdbcTemplate.update("INSERT INTO user (username, password, role, real_name, email) VALUES (?, ?, ?, ?, ?)",
+                username, "load-test", role, username, username + "@load.test");
+        return jdbcTemplate.queryForObject("SELECT id FROM user WHERE username = ?", Long.class, username);
+    }
+}
@@ -0,0 +1,31 @@
+import axios from 'axios'
+
+// 每页数量，与后端 PageCursor.DEFAULT_LIMIT 一致
+export const PAGE_LIMIT = 50
+
+// 后端把下一页游标放在 X-Next-Cursor 响应头，没有下一页时不返回该头
+const NEXT_CURSOR_HEADER = 'x-next-cursor'
+
+// 请求游标分页列表的一页，返回本页数据和下一页游标（没有下一页时为 null）
+export const fetchCursorPage = async (url, { params = {}, cursor = null, headers = {} } = {}) => {
+  const response = await axios.get(url, {
+    params: cursor ? { ...params, limit: PAGE_LIMIT, cursor } : { ...params, limit: PAGE_LIMIT },
+    headers
+  })
+  return {
+    items: response.data || [],
+    nextCursor: response.headers[NEXT_CURSOR_HEADER] || null
+  }
+}
+
+// 跟随游标取完所有页，只用于数量有限的下拉选项（如教师的班级）
+export const fetchAllCursorPages = async (url, options = {}) => {
+  const items = []
+  let cursor = null
+  do {
+    const page = await fetchCursorPage(url, { ...options, cursor })
+    items.push(...page.items)
+    cursor = page.nextCursor
+  } while (cursor)
+  return items
+}